@@ -0,0 +1,142 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.benchmarks;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.mtbo.lcloud.discovery.sql.JdbcDiscovery;
+import org.mtbo.lcloud.discovery.sql.SpiDiscovery;
+import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+
+/**
+ * Heartbeat latency of R2DBC (Spring Data and plain SPI) and JDBC backends over one warmed up
+ * connection. Both backends write the same row, so numbers differ only by driver and call stack.
+ *
+ * <p>H2 in memory by default, run against PostgreSQL with {@code -p
+ * connectionString=r2dbc:postgresql://... -p url=jdbc:postgresql://...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeartbeatBenchmark {
+
+  @Param("r2dbc:h2:mem:///heartbeat?options=DB_CLOSE_DELAY=-1")
+  public String connectionString;
+
+  @Param("jdbc:h2:mem:heartbeat;DB_CLOSE_DELAY=-1")
+  public String url;
+
+  private SqlDiscovery sqlDiscovery;
+
+  private ConnectionPool pool;
+
+  private R2dbcEntityTemplate template;
+
+  private SpiDiscovery spiDiscovery;
+
+  private JdbcDiscovery jdbcDiscovery;
+
+  /**
+   * Create schema and open connections
+   *
+   * @throws SQLException if database is not available
+   */
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    var interval = Duration.ofSeconds(10);
+
+    sqlDiscovery =
+        new SqlDiscovery(new SqlDiscovery.Config(connectionString, "benchmark", "r2dbc", interval));
+    sqlDiscovery.initialize().block();
+
+    pool =
+        new ConnectionPool(
+            ConnectionPoolConfiguration.builder(ConnectionFactories.get(connectionString))
+                .initialSize(1)
+                .maxSize(1)
+                .build());
+    template = new R2dbcEntityTemplate(pool);
+
+    spiDiscovery =
+        new SpiDiscovery(
+            new SpiDiscovery.Config(connectionString, "benchmark", "spi", interval)
+                .withPool(SqlDiscovery.Pool.of(1, 1, Duration.ofMinutes(10))));
+    spiDiscovery.initialize().block();
+
+    jdbcDiscovery = new JdbcDiscovery(new JdbcDiscovery.Config(url, "benchmark", "jdbc", interval));
+    jdbcDiscovery.initialize();
+  }
+
+  /** Close connections */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    jdbcDiscovery.close();
+    spiDiscovery.close();
+    pool.dispose();
+    sqlDiscovery.close();
+  }
+
+  /**
+   * Upsert over R2DBC pool
+   *
+   * @return upsert result
+   */
+  @Benchmark
+  public Boolean r2dbcPing() {
+    return sqlDiscovery.update(template).block();
+  }
+
+  /**
+   * Upsert over R2DBC SPI pool, without Spring Data
+   *
+   * @return upsert result
+   */
+  @Benchmark
+  public Boolean spiPing() {
+    return spiDiscovery.update().block();
+  }
+
+  /**
+   * Upsert over JDBC prepared statement
+   *
+   * @return upsert result
+   * @throws SQLException on database error
+   */
+  @Benchmark
+  public boolean jdbcPing() throws SQLException {
+    return jdbcDiscovery.ping();
+  }
+
+  /**
+   * Alive instances over JDBC prepared statement
+   *
+   * @return instance names
+   * @throws SQLException on database error
+   */
+  @Benchmark
+  public Set<String> jdbcLookup() throws SQLException {
+    return jdbcDiscovery.lookup();
+  }
+}
@@ -0,0 +1,71 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.benchmarks;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.mtbo.lcloud.discovery.sql.JdbcDiscovery;
+import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+/**
+ * Time from cold JVM to first registered heartbeat. Every measurement runs in a fresh fork, so
+ * class loading and driver initialization are included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+  @Param("r2dbc:h2:mem:///startup?options=DB_CLOSE_DELAY=-1")
+  public String connectionString;
+
+  @Param("jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1")
+  public String url;
+
+  /**
+   * Initialize schema and heartbeat once over R2DBC
+   *
+   * @return alive instances
+   */
+  @Benchmark
+  public Set<String> r2dbc() {
+    try (var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(
+                connectionString, "benchmark", "r2dbc", Duration.ofSeconds(10)))) {
+      discovery.initialize().block();
+      return discovery.heartbeat(Mono::error).blockFirst();
+    }
+  }
+
+  /**
+   * Initialize schema and ping once over JDBC
+   *
+   * @return ping result
+   * @throws SQLException on database error
+   */
+  @Benchmark
+  public boolean jdbc() throws SQLException {
+    try (var discovery =
+        new JdbcDiscovery(
+            new JdbcDiscovery.Config(url, "benchmark", "jdbc", Duration.ofSeconds(10)))) {
+      return discovery.initialize() && discovery.ping();
+    }
+  }
+}
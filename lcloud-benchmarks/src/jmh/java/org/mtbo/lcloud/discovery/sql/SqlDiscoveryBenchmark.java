@@ -0,0 +1,138 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link SqlDiscovery} statements against in-memory H2 seeded with {@link #rows} instances spread
+ * over {@link #services} services, every seventh instance is expired. Discovery looks up service
+ * {@code service-0}.
+ *
+ * <p>Lives in discovery package to call {@link SqlDiscovery#request} directly, public lookups wait
+ * for update interval before first emission. Run with {@code -prof gc} (default of the gradle task)
+ * for allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlDiscoveryBenchmark {
+
+  /** Seeded instances count */
+  @Param({"1000", "10000", "100000"})
+  public int rows;
+
+  /** Services count */
+  @Param("100")
+  public int services;
+
+  private SqlDiscovery discovery;
+
+  private R2dbcEntityTemplate template;
+
+  /**
+   * Create schema and seed instances
+   *
+   * @throws SQLException on seed error
+   */
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    var database = "seeded" + rows;
+
+    discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(
+                    "r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1",
+                    "service-0",
+                    "self",
+                    Duration.ofSeconds(10))
+                .withPool(SqlDiscovery.Pool.of(1, 1, Duration.ofMinutes(10))));
+    discovery.initialize().block();
+    template = discovery.connections.template;
+
+    try (var connection =
+            DriverManager.getConnection("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        var statement =
+            connection.prepareStatement(
+                """
+            insert into instances (id, service, name, last)
+            select random_uuid(), 'service-' || mod(x, ?), 'instance-' || x,
+                case when mod(x, 7) = 0 then now() - interval '1' hour else now() end
+            from system_range(1, ?)
+            """)) {
+      connection.createStatement().execute("delete from instances");
+      statement.setInt(1, services);
+      statement.setInt(2, rows);
+      statement.executeUpdate();
+    }
+  }
+
+  /** Close discovery */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    discovery.close();
+  }
+
+  /**
+   * Refresh self-instance
+   *
+   * @return upsert result
+   */
+  @Benchmark
+  public Boolean update() {
+    return discovery.update(template).block();
+  }
+
+  /**
+   * Alive instances of one service
+   *
+   * @return instances names
+   */
+  @Benchmark
+  public Set<String> request() {
+    return discovery.request(template).block();
+  }
+
+  /**
+   * Delete expired instances of the service. Expired rows are deleted by the first call, then the
+   * cost of finding none is measured, as on every service start.
+   *
+   * @return deleted count
+   */
+  @Benchmark
+  public Long cleanAll() {
+    return discovery.cleanAll(Mono::error).block();
+  }
+
+  /**
+   * Initialize current schema, the path taken by every start after the first one
+   *
+   * @return true if schema is current
+   */
+  @Benchmark
+  public Boolean initialize() {
+    return discovery.initialize().block();
+  }
+}
@@ -0,0 +1,122 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.benchmarks;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import org.mtbo.lcloud.discovery.sql.JdbcDiscovery;
+import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+
+/**
+ * Process footprint of one discovery backend: time from JVM start to first heartbeat, resident set
+ * size, metaspace, loaded classes and heartbeat latency percentiles. Heartbeat is the same single
+ * upsert over one connection in both backends. Run once per backend, each in its own JVM.
+ *
+ * <p>Usage: {@code Footprint r2dbc|jdbc <connection string or url> [heartbeats]}
+ */
+public final class Footprint {
+
+  private Footprint() {}
+
+  /**
+   * Entry point
+   *
+   * @param args backend, connection string, optional heartbeats count
+   * @throws Exception on database error
+   */
+  public static void main(String[] args) throws Exception {
+    var backend = args[0];
+    var count = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+    var interval = Duration.ofSeconds(10);
+
+    Heartbeat heartbeat;
+    AutoCloseable closeable;
+
+    switch (backend) {
+      case "r2dbc" -> {
+        var discovery =
+            new SqlDiscovery(new SqlDiscovery.Config(args[1], "footprint", "r2dbc", interval));
+        discovery.initialize().block();
+        var pool =
+            new ConnectionPool(
+                ConnectionPoolConfiguration.builder(ConnectionFactories.get(args[1]))
+                    .initialSize(1)
+                    .maxSize(1)
+                    .build());
+        var template = new R2dbcEntityTemplate(pool);
+        heartbeat = () -> discovery.update(template).block();
+        closeable =
+            () -> {
+              pool.dispose();
+              discovery.close();
+            };
+      }
+      case "jdbc" -> {
+        var discovery =
+            new JdbcDiscovery(new JdbcDiscovery.Config(args[1], "footprint", "jdbc", interval));
+        discovery.initialize();
+        heartbeat = discovery::ping;
+        closeable = discovery;
+      }
+      default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+    }
+
+    try (closeable) {
+      heartbeat.run();
+      var startup = ManagementFactory.getRuntimeMXBean().getUptime();
+
+      var latencies = new long[count];
+      for (var i = 0; i < count; i++) {
+        var start = System.nanoTime();
+        heartbeat.run();
+        latencies[i] = System.nanoTime() - start;
+      }
+      Arrays.sort(latencies);
+
+      System.out.printf(
+          "%1$s: startup %2$d ms, rss %3$d KiB, metaspace %4$d KiB, classes %5$d,"
+              + " heartbeat p50 %6$d us, p99 %7$d us%n",
+          backend,
+          startup,
+          rss(),
+          metaspace() / 1024,
+          ManagementFactory.getClassLoadingMXBean().getLoadedClassCount(),
+          latencies[count / 2] / 1_000,
+          latencies[count * 99 / 100] / 1_000);
+    }
+  }
+
+  /** Resident set size from {@code /proc/self/status}, -1 if not available */
+  private static long rss() {
+    try (var lines = Files.lines(Path.of("/proc/self/status"))) {
+      return lines
+          .filter(line -> line.startsWith("VmRSS:"))
+          .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+          .findFirst()
+          .orElse(-1L);
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static long metaspace() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.NON_HEAP && "Metaspace".equals(pool.getName()))
+        .mapToLong(pool -> pool.getUsage().getUsed())
+        .sum();
+  }
+
+  @FunctionalInterface
+  private interface Heartbeat {
+    void run() throws Exception;
+  }
+}
@@ -0,0 +1,140 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.benchmarks;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+
+/**
+ * WAL bytes written per heartbeat and HOT updates share for each storage profile, heartbeats are
+ * sent by {@link SqlDiscovery#update(R2dbcEntityTemplate)} through r2dbc, same statement as {@link
+ * SqlDiscovery#ping}. PostgreSQL only. Switches storage profile of instances table, so run it
+ * against scratch database.
+ *
+ * <p>Usage: {@code WalFootprint <connection string> [heartbeats] [instances]}
+ */
+public final class WalFootprint {
+
+  static final String SERVICE = "wal-footprint";
+
+  private WalFootprint() {}
+
+  /**
+   * Entry point
+   *
+   * @param args connection string, optional heartbeats and instances count
+   */
+  public static void main(String[] args) {
+    var connectionString = args[0];
+    var heartbeats = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    var count = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+    for (var storage : List.of(SqlDiscovery.Storage.LOGGED, SqlDiscovery.Storage.UNLOGGED)) {
+      var config =
+          new SqlDiscovery.Config(connectionString, SERVICE, "instance-0", Duration.ofSeconds(10))
+              .withStorage(storage);
+
+      var instances =
+          IntStream.range(0, count)
+              .mapToObj(
+                  i ->
+                      new SqlDiscovery(
+                          new SqlDiscovery.Config(
+                              connectionString, SERVICE, "instance-" + i, Duration.ofSeconds(10))))
+              .toList();
+
+      try (var discovery = new SqlDiscovery(config)) {
+        discovery.initialize().block();
+      }
+
+      var stats = new R2dbcEntityTemplate(ConnectionFactories.get(connectionString));
+      stats
+          .getDatabaseClient()
+          .sql("delete from instances where service = :service")
+          .bind("service", SERVICE)
+          .fetch()
+          .rowsUpdated()
+          .block();
+
+      var pool =
+          new ConnectionPool(
+              ConnectionPoolConfiguration.builder(ConnectionFactories.get(connectionString))
+                  .maxSize(1)
+                  .build());
+      var template = new R2dbcEntityTemplate(pool);
+
+      instances.forEach(instance -> instance.update(template).block());
+
+      stats.getDatabaseClient().sql("checkpoint").fetch().rowsUpdated().block();
+      var updates = counters(stats);
+      var lsn = lsn(stats);
+
+      for (var i = 0; i < heartbeats; i++) {
+        instances.get(i % count).update(template).block();
+      }
+
+      var wal = walBytes(stats, lsn);
+
+      // closed backend flushes its table statistics
+      pool.dispose();
+      var after = counters(stats);
+      for (var tries = 0; after[0] - updates[0] < heartbeats && tries < 100 && sleep(); tries++) {
+        after = counters(stats);
+      }
+
+      System.out.printf(
+          "%1$s: %2$.1f WAL bytes per heartbeat, %3$d of %4$d updates HOT%n",
+          storage, (double) wal / heartbeats, after[1] - updates[1], after[0] - updates[0]);
+
+      instances.forEach(SqlDiscovery::close);
+    }
+  }
+
+  private static String lsn(R2dbcEntityTemplate template) {
+    return template
+        .getDatabaseClient()
+        .sql("select cast(pg_current_wal_lsn() as text) as lsn")
+        .map(row -> row.get("lsn", String.class))
+        .one()
+        .block();
+  }
+
+  private static long walBytes(R2dbcEntityTemplate template, String lsn) {
+    return template
+        .getDatabaseClient()
+        .sql(
+            "select cast(pg_wal_lsn_diff(pg_current_wal_lsn(), cast(:lsn as pg_lsn)) as bigint) as bytes")
+        .bind("lsn", lsn)
+        .map(row -> row.get("bytes", Long.class))
+        .one()
+        .block();
+  }
+
+  /** Updates and HOT updates of instances table */
+  private static long[] counters(R2dbcEntityTemplate template) {
+    return template
+        .getDatabaseClient()
+        .sql("select n_tup_upd, n_tup_hot_upd from pg_stat_user_tables where relname = 'instances'")
+        .map(
+            row ->
+                new long[] {row.get("n_tup_upd", Long.class), row.get("n_tup_hot_upd", Long.class)})
+        .one()
+        .block();
+  }
+
+  private static boolean sleep() {
+    try {
+      Thread.sleep(100);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
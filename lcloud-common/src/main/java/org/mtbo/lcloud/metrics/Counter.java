@@ -0,0 +1,20 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics;
+
+/** Monotonic counter */
+@FunctionalInterface
+public interface Counter {
+
+  /**
+   * Add amount
+   *
+   * @param amount non-negative amount
+   */
+  void increment(long amount);
+
+  /** Add one */
+  default void increment() {
+    increment(1);
+  }
+}
@@ -0,0 +1,15 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics;
+
+/** Latency distribution */
+@FunctionalInterface
+public interface Histogram {
+
+  /**
+   * Record one latency
+   *
+   * @param nanos latency in nanoseconds
+   */
+  void record(long nanos);
+}
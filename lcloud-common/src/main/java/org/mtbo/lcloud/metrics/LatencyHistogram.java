@@ -0,0 +1,111 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram. Every power of two range is split into 8 buckets, so recorded
+ * values are exact below 8 ns and within 12.5% above. Recording does not allocate.
+ */
+public final class LatencyHistogram implements Histogram {
+
+  private static final int SUB_BITS = 3;
+
+  private static final int SUB = 1 << SUB_BITS;
+
+  private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /** Empty histogram */
+  public LatencyHistogram() {}
+
+  @Override
+  public void record(long nanos) {
+    var value = Math.max(0, nanos);
+    counts.incrementAndGet(index(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Recorded values count
+   *
+   * @return count
+   */
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * Sum of recorded values
+   *
+   * @return sum, nanoseconds
+   */
+  public long sum() {
+    return sum.sum();
+  }
+
+  /**
+   * Maximal recorded value
+   *
+   * @return maximum, nanoseconds
+   */
+  public long max() {
+    return max.get();
+  }
+
+  /**
+   * Value at quantile, upper bound of its bucket
+   *
+   * @param quantile quantile in [0, 1]
+   * @return value, nanoseconds, 0 if empty
+   */
+  public long valueAt(double quantile) {
+    var total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+
+    var rank = Math.max(1, (long) Math.ceil(quantile * total));
+    var seen = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upper(i), max());
+      }
+    }
+
+    return 0;
+  }
+
+  static int index(long value) {
+    if (value < SUB) {
+      return (int) value;
+    }
+
+    var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    var mantissa = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+    return (exponent - SUB_BITS + 1) * SUB + mantissa;
+  }
+
+  static long upper(int index) {
+    if (index < SUB) {
+      return index;
+    }
+
+    var shift = index / SUB - 1;
+    var lower = (long) (SUB + index % SUB) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
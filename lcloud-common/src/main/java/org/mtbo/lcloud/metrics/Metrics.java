@@ -0,0 +1,44 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Metrics registry SPI. Meters are created once and updated on hot paths, so implementations should
+ * not allocate on update.
+ *
+ * <p>Tags are given as alternating keys and values.
+ */
+public interface Metrics {
+
+  /** Registry discarding all updates */
+  Metrics NOOP = NoopMetrics.INSTANCE;
+
+  /**
+   * Get or create monotonic counter
+   *
+   * @param name meter name
+   * @param tags alternating tag keys and values
+   * @return counter
+   */
+  Counter counter(String name, String... tags);
+
+  /**
+   * Register gauge sampled on read
+   *
+   * @param name meter name
+   * @param value sampled value supplier
+   * @param tags alternating tag keys and values
+   */
+  void gauge(String name, DoubleSupplier value, String... tags);
+
+  /**
+   * Get or create latency histogram
+   *
+   * @param name meter name
+   * @param tags alternating tag keys and values
+   * @return histogram
+   */
+  Histogram histogram(String name, String... tags);
+}
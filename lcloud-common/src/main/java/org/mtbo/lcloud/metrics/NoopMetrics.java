@@ -0,0 +1,27 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/** Registry discarding all updates, see {@link Metrics#NOOP} */
+enum NoopMetrics implements Metrics {
+  INSTANCE;
+
+  private static final Counter COUNTER = amount -> {};
+
+  private static final Histogram HISTOGRAM = nanos -> {};
+
+  @Override
+  public Counter counter(String name, String... tags) {
+    return COUNTER;
+  }
+
+  @Override
+  public void gauge(String name, DoubleSupplier value, String... tags) {}
+
+  @Override
+  public Histogram histogram(String name, String... tags) {
+    return HISTOGRAM;
+  }
+}
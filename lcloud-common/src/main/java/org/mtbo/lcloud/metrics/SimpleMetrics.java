@@ -0,0 +1,68 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/** In-memory registry without dependencies, for tests and ad hoc inspection */
+public final class SimpleMetrics implements Metrics {
+
+  private final Map<Id, LongAdder> counters = new ConcurrentHashMap<>();
+
+  private final Map<Id, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+  private final Map<Id, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  /** Empty registry */
+  public SimpleMetrics() {}
+
+  @Override
+  public Counter counter(String name, String... tags) {
+    var adder = counters.computeIfAbsent(new Id(name, tags), id -> new LongAdder());
+    return adder::add;
+  }
+
+  @Override
+  public void gauge(String name, DoubleSupplier value, String... tags) {
+    gauges.put(new Id(name, tags), value);
+  }
+
+  @Override
+  public LatencyHistogram histogram(String name, String... tags) {
+    return histograms.computeIfAbsent(new Id(name, tags), id -> new LatencyHistogram());
+  }
+
+  /**
+   * Counter value
+   *
+   * @param name meter name
+   * @param tags alternating tag keys and values
+   * @return value, 0 if not registered
+   */
+  public long count(String name, String... tags) {
+    var adder = counters.get(new Id(name, tags));
+    return adder != null ? adder.sum() : 0;
+  }
+
+  /**
+   * Sample gauge
+   *
+   * @param name meter name
+   * @param tags alternating tag keys and values
+   * @return value, NaN if not registered
+   */
+  public double value(String name, String... tags) {
+    var gauge = gauges.get(new Id(name, tags));
+    return gauge != null ? gauge.getAsDouble() : Double.NaN;
+  }
+
+  private record Id(String name, List<String> tags) {
+    Id(String name, String[] tags) {
+      this(name, List.of(tags));
+    }
+  }
+}
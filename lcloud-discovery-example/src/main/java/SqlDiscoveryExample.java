@@ -52,7 +52,8 @@ public class SqlDiscoveryExample {
     var discovery =
         new SqlDiscovery(
             new SqlDiscovery.Config(
-                connectionString, serviceName, instanceName, Duration.ofMillis(500)));
+                    connectionString, serviceName, instanceName, Duration.ofMillis(500))
+                .withPool(SqlDiscovery.Pool.of(1, 4, Duration.ofMinutes(1))));
 
     if (Boolean.FALSE.equals(
         discovery
@@ -129,6 +130,8 @@ public class SqlDiscoveryExample {
 
     discovery.clean().block();
 
+    discovery.close();
+
     logger.info("Bye!");
   }
 }
@@ -0,0 +1,47 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics.micrometer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.mtbo.lcloud.metrics.Counter;
+import org.mtbo.lcloud.metrics.Histogram;
+import org.mtbo.lcloud.metrics.Metrics;
+
+/**
+ * {@link Metrics} backed by Micrometer registry. Histograms are timers publishing percentile
+ * histogram, so percentiles can be aggregated by monitoring system.
+ */
+public final class MicrometerMetrics implements Metrics {
+
+  private final MeterRegistry registry;
+
+  /**
+   * Wrap registry
+   *
+   * @param registry micrometer registry
+   */
+  public MicrometerMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Counter counter(String name, String... tags) {
+    var counter = registry.counter(name, tags);
+    return counter::increment;
+  }
+
+  @Override
+  public void gauge(String name, DoubleSupplier value, String... tags) {
+    Gauge.builder(name, value::getAsDouble).tags(tags).strongReference(true).register(registry);
+  }
+
+  @Override
+  public Histogram histogram(String name, String... tags) {
+    var timer = Timer.builder(name).tags(tags).publishPercentileHistogram().register(registry);
+    return nanos -> timer.record(nanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,51 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.metrics.micrometer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class MicrometerMetricsTest {
+
+  @Test
+  public void testCounter() {
+    var registry = new SimpleMeterRegistry();
+    var metrics = new MicrometerMetrics(registry);
+
+    var counter = metrics.counter("lcloud.test.counter", "service", "first");
+    counter.increment();
+    counter.increment();
+    metrics.counter("lcloud.test.counter", "service", "first").increment();
+
+    assertEquals(3, registry.get("lcloud.test.counter").tag("service", "first").counter().count());
+  }
+
+  @Test
+  public void testGauge() {
+    var registry = new SimpleMeterRegistry();
+    var value = new AtomicInteger(5);
+
+    new MicrometerMetrics(registry).gauge("lcloud.test.gauge", value::get, "service", "first");
+    value.set(7);
+
+    assertEquals(7, registry.get("lcloud.test.gauge").tag("service", "first").gauge().value());
+  }
+
+  @Test
+  public void testHistogram() {
+    var registry = new SimpleMeterRegistry();
+    var histogram = new MicrometerMetrics(registry).histogram("lcloud.test.latency", "op", "ping");
+
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(4));
+
+    var timer = registry.get("lcloud.test.latency").tag("op", "ping").timer();
+    assertEquals(2, timer.count());
+    assertEquals(6, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    assertEquals(4, timer.max(TimeUnit.MILLISECONDS), 0.001);
+  }
+}
@@ -0,0 +1,28 @@
+--
+-- Copyright (c) 2025. Vladimir E. Koltunov, mtbo.org
+--
+-- Heartbeat loop of wal-benchmark.sql, expects wal_bench table, sets wal_bytes, updates and
+-- hot_updates variables.
+
+insert into wal_bench (service, name)
+select 'bench', 'instance-' || i
+from generate_series(1, :instances) i;
+
+checkpoint;
+select pg_current_wal_lsn() as start_lsn \gset
+
+\o /dev/null
+select format('insert into wal_bench (service, name) values (%L, %L) '
+                  'on conflict (name, service) do update set last = now(), '
+                  'seq = case when wal_bench.last < now() - make_interval(secs => 10) '
+                  'then 1 else wal_bench.seq end',
+              'bench', 'instance-' || (i % :instances + 1))
+from generate_series(1, :heartbeats) i
+\gexec
+\o
+
+select pg_wal_lsn_diff(pg_current_wal_lsn(), :'start_lsn') as wal_bytes \gset
+select pg_stat_force_next_flush();
+select n_tup_upd as updates, n_tup_hot_upd as hot_updates
+from pg_stat_user_tables
+where relname = 'wal_bench' \gset
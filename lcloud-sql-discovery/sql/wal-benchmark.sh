@@ -0,0 +1,10 @@
+#!/bin/sh
+
+#
+# Copyright (c) 2025. Vladimir E. Koltunov, mtbo.org
+#
+# Runs wal-benchmark.sql in demo_db container started by postgres.sh
+export MSYS_NO_PATHCONV=1
+docker cp wal-benchmark.sql demo_db:/tmp/wal-benchmark.sql
+docker cp wal-benchmark-run.sql demo_db:/tmp/wal-benchmark-run.sql
+docker exec -w /tmp demo_db psql -U user -d demo -v heartbeats="${1:-10000}" -v instances="${2:-100}" -f wal-benchmark.sql
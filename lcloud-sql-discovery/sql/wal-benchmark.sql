@@ -0,0 +1,66 @@
+--
+-- Copyright (c) 2025. Vladimir E. Koltunov, mtbo.org
+--
+-- WAL bytes written per heartbeat for LOGGED and UNLOGGED storage profiles.
+-- Each heartbeat is a separate autocommit upsert, same as SqlDiscovery.ping().
+-- Usage: psql -v heartbeats=10000 -v instances=100 -f wal-benchmark.sql
+
+\if :{?heartbeats}
+\else
+    \set heartbeats 10000
+\endif
+\if :{?instances}
+\else
+    \set instances 100
+\endif
+
+create temp table wal_benchmark
+(
+    profile     text,
+    wal_bytes   numeric,
+    updates     bigint,
+    hot_updates bigint
+);
+
+-- LOGGED: regular table, default fillfactor, (service, last) and (last) indexes
+
+drop table if exists wal_bench;
+create table wal_bench
+(
+    id      uuid not null primary key default gen_random_uuid(),
+    service varchar(255),
+    name    varchar(255),
+    last    timestamp with time zone default now(),
+    seq     bigint,
+    constraint wal_bench_uniq unique (name, service)
+);
+create index on wal_bench (last);
+create index on wal_bench (service, last) include (name);
+
+\ir wal-benchmark-run.sql
+insert into wal_benchmark select 'LOGGED', :wal_bytes, :updates, :hot_updates;
+
+-- UNLOGGED: unlogged table, fillfactor 50, only (service) include (name) index
+
+drop table wal_bench;
+create unlogged table wal_bench
+(
+    id      uuid not null primary key default gen_random_uuid(),
+    service varchar(255),
+    name    varchar(255),
+    last    timestamp with time zone default now(),
+    seq     bigint,
+    constraint wal_bench_uniq unique (name, service)
+) with (fillfactor = 50);
+create index on wal_bench (service) include (name);
+
+\ir wal-benchmark-run.sql
+insert into wal_benchmark select 'UNLOGGED', :wal_bytes, :updates, :hot_updates;
+
+drop table wal_bench;
+
+select profile,
+       round(wal_bytes / :heartbeats, 1) as wal_bytes_per_heartbeat,
+       updates,
+       hot_updates
+from wal_benchmark;
@@ -0,0 +1,94 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Long-lived connection factory (optionally pooled) and template, owned by one discovery */
+final class Connections implements AutoCloseable {
+
+  final ConnectionFactory connectionFactory;
+
+  /** Not pooled factory, used for session bound connections */
+  final ConnectionFactory directConnectionFactory;
+
+  final R2dbcEntityTemplate template;
+
+  final Dialect dialect;
+
+  @Nullable private final Pooling pool;
+
+  /**
+   * Parse connection string once and build factory
+   *
+   * @param connectionString db connection string
+   * @param poolConfig pool configuration
+   */
+  Connections(String connectionString, SqlDiscovery.Pool poolConfig) {
+    var factory = ConnectionFactories.get(connectionString);
+    directConnectionFactory = factory;
+
+    if (poolConfig.enabled()) {
+      pool = new Pooling(factory, poolConfig);
+      connectionFactory = pool.factory();
+    } else {
+      pool = null;
+      connectionFactory = factory;
+    }
+
+    template = new R2dbcEntityTemplate(connectionFactory);
+    dialect = Dialect.of(factory.getMetadata());
+  }
+
+  /**
+   * Open {@link SqlDiscovery.Pool#minSize()} connections in advance
+   *
+   * @return count of warmed up connections, 0 if pooling is disabled
+   */
+  Mono<Integer> warmup() {
+    return pool != null ? pool.warmup() : Mono.just(0);
+  }
+
+  /**
+   * Current pool statistics
+   *
+   * @return statistics, empty if pooling is disabled
+   */
+  Optional<SqlDiscovery.PoolStatistics> statistics() {
+    return Optional.ofNullable(pool).flatMap(Pooling::statistics);
+  }
+
+  /**
+   * Listen notification channel on dedicated connection
+   *
+   * @param channel channel name
+   * @return flux of notification payloads, completes with error if connection is lost
+   */
+  Flux<String> notifications(String channel) {
+    return Flux.usingWhen(
+        directConnectionFactory.create(),
+        connection ->
+            Flux.from(connection.createStatement("listen " + channel).execute())
+                .flatMap(Result::getRowsUpdated)
+                .thenMany(((PostgresqlConnection) connection).getNotifications())
+                .mapNotNull(Notification::getParameter),
+        Connection::close);
+  }
+
+  @Override
+  public void close() {
+    if (pool != null) {
+      pool.dispose();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Hash ring with virtual nodes. Hash is computed from node identity and key text only, so all
+ * processes with equal nodes list agree on mapping, and adding or removing a node remaps about
+ * {@code 1/n} of keys.
+ *
+ * @param <T> node type
+ */
+final class ConsistentHash<T> {
+
+  private final TreeMap<Long, T> ring = new TreeMap<>();
+
+  /**
+   * Build ring
+   *
+   * @param nodes nodes, not empty
+   * @param identity stable node identity
+   * @param virtualNodes points on the ring per node
+   */
+  ConsistentHash(List<T> nodes, Function<T, String> identity, int virtualNodes) {
+    if (nodes.isEmpty()) {
+      throw new IllegalArgumentException("No nodes");
+    }
+
+    for (var node : nodes) {
+      for (int i = 0; i < virtualNodes; i++) {
+        ring.put(hash(identity.apply(node) + "#" + i), node);
+      }
+    }
+  }
+
+  /**
+   * Node owning key
+   *
+   * @param key key
+   * @return first node clockwise from key hash
+   */
+  T get(String key) {
+    Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+    return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+  }
+
+  private static long hash(String text) {
+    try {
+      var digest = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(digest).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/** SQL statements which differ between supported databases */
+enum Dialect {
+  /** PostgreSQL, default */
+  POSTGRES(
+      "now() - make_interval(secs => :interval)",
+      """
+      insert into instances (id, service, name) values (:id, :service, :name)
+      on conflict (name, service) do update set last = now(),
+          seq = case when instances.last < now() - make_interval(secs => :interval)
+              then nextval('instances_seq') else instances.seq end
+      """,
+      """
+      insert into instances (id, service, name) select * from unnest(:ids, :services, :names)
+      on conflict (name, service) do update set last = now(),
+          seq = case when instances.last < now() - make_interval(secs => :interval)
+              then nextval('instances_seq') else instances.seq end
+      """,
+      "create index if not exists service_last_index on instances (service, last) include (name)",
+      """
+      create or replace function instances_notify() returns trigger language plpgsql as $$
+      begin
+          perform pg_notify('%1$s', coalesce(new.service, old.service));
+          return null;
+      end
+      $$;
+      do $$
+      begin
+          if not exists (select 1 from pg_trigger where tgname = 'instances_notify') then
+              create trigger instances_notify after insert or delete on instances
+                  for each row execute function instances_notify();
+          end if;
+          if not exists (select 1 from pg_trigger where tgname = 'instances_notify_revive') then
+              create trigger instances_notify_revive after update on instances
+                  for each row when (old.seq is distinct from new.seq)
+                  execute function instances_notify();
+          end if;
+      end
+      $$;
+      """
+          .formatted(Dialect.CHANNEL)),
+
+  /** H2, used in tests */
+  H2(
+      "now() - cast(:interval as interval second)",
+      """
+      merge into instances t
+      using (values (:id, :service, :name)) s (id, service, name)
+      on t.service = s.service and t.name = s.name
+      when matched then update set last = now(),
+          seq = case when t.last < now() - cast(:interval as interval second)
+              then nextval('instances_seq') else t.seq end
+      when not matched then insert (id, service, name) values (s.id, s.service, s.name)
+      """,
+      """
+      merge into instances t
+      using (select * from unnest(:ids, :services, :names)) s (id, service, name)
+      on t.service = s.service and t.name = s.name
+      when matched then update set last = now(),
+          seq = case when t.last < now() - cast(:interval as interval second)
+              then nextval('instances_seq') else t.seq end
+      when not matched then insert (id, service, name) values (s.id, s.service, s.name)
+      """,
+      "create index if not exists service_last_index on instances (service, last, name)",
+      null);
+
+  /** Notification channel, payload is the service name of joined or left instance */
+  static final String CHANNEL = "lcloud_instances";
+
+  /**
+   * Expiration threshold expression, {@code :interval} is bound in seconds. Compared with {@code
+   * last} column as is, so predicates stay index friendly.
+   */
+  final String threshold;
+
+  /**
+   * Insert instance or refresh its last ping time in one statement. Change sequence is advanced on
+   * insert and when expired instance is revived.
+   */
+  final String upsert;
+
+  /** Batch variant of {@link #upsert}, parallel arrays of ids, services and names are bound */
+  final String upsertAll;
+
+  /** Index covering alive instances request by service */
+  final String serviceIndex;
+
+  /** Triggers notifying {@link #CHANNEL} on join, revive and leave, null if not supported */
+  @Nullable final String notifyTrigger;
+
+  Dialect(
+      String threshold,
+      String upsert,
+      String upsertAll,
+      String serviceIndex,
+      @Nullable String notifyTrigger) {
+    this.threshold = threshold;
+    this.upsert = upsert;
+    this.upsertAll = upsertAll;
+    this.serviceIndex = serviceIndex;
+    this.notifyTrigger = notifyTrigger;
+  }
+
+  /**
+   * Statements switching instances table to storage profile
+   *
+   * @param storage storage profile
+   * @return idempotent statements, empty if profile is not supported or is {@link
+   *     SqlDiscovery.Storage#DEFAULT}
+   */
+  List<String> storage(SqlDiscovery.Storage storage) {
+    if (this != POSTGRES) {
+      return List.of();
+    }
+
+    return switch (storage) {
+      case DEFAULT -> List.of();
+      case LOGGED ->
+          List.of(
+              """
+              alter table instances reset (fillfactor, autovacuum_vacuum_scale_factor,
+                  autovacuum_vacuum_threshold, autovacuum_analyze_scale_factor,
+                  autovacuum_vacuum_cost_delay)
+              """,
+              "alter table instances set logged",
+              "create index if not exists last_index on instances (last)",
+              serviceIndex,
+              "drop index if exists service_index");
+      case UNLOGGED ->
+          List.of(
+              """
+              alter table instances set (fillfactor = 50, autovacuum_vacuum_scale_factor = 0.02,
+                  autovacuum_vacuum_threshold = 50, autovacuum_analyze_scale_factor = 0.05,
+                  autovacuum_vacuum_cost_delay = 0)
+              """,
+              "alter table instances set unlogged",
+              "create index if not exists service_index on instances (service) include (name)",
+              "drop index if exists service_last_index",
+              "drop index if exists last_index");
+    };
+  }
+
+  /**
+   * Variant of {@link #upsert} also setting {@code :host, :port, :zone, :weight} metadata. Change
+   * sequence is advanced on metadata change too, so it versions decoded metadata.
+   *
+   * @return sql statement
+   */
+  String upsertMetadata() {
+    return switch (this) {
+      case POSTGRES ->
+          """
+          insert into instances (id, service, name, host, port, zone, weight)
+              values (:id, :service, :name, :host, :port, :zone, :weight)
+          on conflict (name, service) do update set last = now(),
+              host = excluded.host, port = excluded.port, zone = excluded.zone,
+              weight = excluded.weight,
+              seq = case when instances.last < %1$s
+                  or (instances.host, instances.port, instances.zone, instances.weight)
+                      is distinct from (excluded.host, excluded.port, excluded.zone, excluded.weight)
+                  then nextval('instances_seq') else instances.seq end
+          """
+              .formatted(threshold);
+      case H2 ->
+          """
+          merge into instances t
+          using (values (:id, :service, :name, :host, :port, :zone, :weight))
+              s (id, service, name, host, port, zone, weight)
+          on t.service = s.service and t.name = s.name
+          when matched then update set last = now(),
+              host = s.host, port = s.port, zone = s.zone, weight = s.weight,
+              seq = case when t.last < %1$s
+                  or (t.host, t.port, t.zone, t.weight) is distinct from
+                      (s.host, s.port, s.zone, s.weight)
+                  then nextval('instances_seq') else t.seq end
+          when not matched then insert (id, service, name, host, port, zone, weight)
+              values (s.id, s.service, s.name, s.host, s.port, s.zone, s.weight)
+          """
+              .formatted(threshold);
+    };
+  }
+
+  /**
+   * Run {@link #upsert} and select alive instances of {@code :service} in one statement. Refreshed
+   * instance is selected from upsert result, so it is returned even if it was expired.
+   *
+   * @return sql statement, result column is {@code name}
+   */
+  String heartbeat() {
+    return heartbeat(upsert);
+  }
+
+  /**
+   * Same as {@link #heartbeat()}, over {@link #upsertMetadata()}
+   *
+   * @return sql statement, result column is {@code name}
+   */
+  String heartbeatMetadata() {
+    return heartbeat(upsertMetadata());
+  }
+
+  private String heartbeat(String upsert) {
+    var alive = "select name from instances where service = :service and " + alive();
+
+    return switch (this) {
+      case POSTGRES ->
+          "with me as (" + upsert + "returning name) " + alive + " union select name from me";
+      case H2 -> alive + " union select name from final table (" + upsert + ")";
+    };
+  }
+
+  /**
+   * Replay lag of replica in seconds, 0 on primary. Also reads instances table, so replica which
+   * can not read it, e.g. unlogged one during recovery, fails the check instead of every lookup.
+   *
+   * @return sql query, result column is {@code lag}
+   */
+  String replicaLag() {
+    return switch (this) {
+      case POSTGRES ->
+          """
+          select cast(coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)
+              as double precision) as lag
+          from (select count(*) from (select 1 from instances limit 1) probe) readable
+          """;
+      case H2 -> "select cast(0 as double precision) as lag";
+    };
+  }
+
+  /**
+   * Delete up to {@code :limit} expired instances of {@code :service}, {@code :interval} is bound
+   * in seconds. Service term keeps it on service index of any storage profile.
+   *
+   * @return sql statement
+   */
+  String reap() {
+    return switch (this) {
+      case POSTGRES ->
+          "delete from instances where ctid = any(array(select ctid from instances where service = :service and "
+              + expired()
+              + " limit :limit))";
+      case H2 ->
+          "delete from instances where id in (select id from instances where service = :service and "
+              + expired()
+              + " limit :limit)";
+    };
+  }
+
+  /**
+   * Try to take session advisory lock {@code :key}, result column is {@code locked}
+   *
+   * @return sql query, null if advisory locks are not supported
+   */
+  @Nullable
+  String tryLock() {
+    return this == POSTGRES ? "select pg_try_advisory_lock(:key) as locked" : null;
+  }
+
+  /**
+   * Predicate of alive instances
+   *
+   * @return sql condition
+   */
+  String alive() {
+    return "last > " + threshold;
+  }
+
+  /**
+   * Predicate of expired instances
+   *
+   * @return sql condition
+   */
+  String expired() {
+    return "last <= " + threshold;
+  }
+
+  /**
+   * Detect dialect by driver metadata
+   *
+   * @param metadata connection factory metadata
+   * @return dialect, {@link #POSTGRES} if unknown
+   */
+  static Dialect of(ConnectionFactoryMetadata metadata) {
+    return of(metadata.getName());
+  }
+
+  /**
+   * Detect dialect by database product name
+   *
+   * @param name database product name
+   * @return dialect, {@link #POSTGRES} if unknown
+   */
+  static Dialect of(String name) {
+    return "H2".equalsIgnoreCase(name) ? H2 : POSTGRES;
+  }
+}
@@ -0,0 +1,146 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import org.mtbo.lcloud.metrics.Counter;
+import org.mtbo.lcloud.metrics.Histogram;
+import org.mtbo.lcloud.metrics.Metrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Meters of one {@link SqlDiscovery}, all tagged by service. Meters are created once, per
+ * operation:
+ *
+ * <ul>
+ *   <li>{@code lcloud.sql.latency} histogram of statement latency
+ *   <li>{@code lcloud.sql.rows} counter of returned or affected rows
+ *   <li>{@code lcloud.sql.errors} counter of failed statements
+ *   <li>{@code lcloud.sql.fallbacks} counter of fallback calls
+ * </ul>
+ *
+ * <p>Gauges: {@code lcloud.sql.membership} last looked up instances count, {@code
+ * lcloud.sql.heartbeat.age} seconds since last successful ping or heartbeat (NaN before first one)
+ * and {@code lcloud.sql.ping.interval} effective ping delay in seconds.
+ */
+final class DiscoveryMetrics {
+
+  private final Map<Operation, Meters> meters = new EnumMap<>(Operation.class);
+
+  private volatile int membership;
+
+  private volatile long heartbeat;
+
+  private volatile boolean alive;
+
+  /**
+   * Register meters
+   *
+   * @param metrics registry
+   * @param serviceName service name tag
+   * @param interval effective ping interval
+   */
+  DiscoveryMetrics(Metrics metrics, String serviceName, Supplier<Duration> interval) {
+    for (var operation : Operation.values()) {
+      String[] tags = {"service", serviceName, "operation", operation.tag};
+
+      meters.put(
+          operation,
+          new Meters(
+              metrics.histogram("lcloud.sql.latency", tags),
+              metrics.counter("lcloud.sql.rows", tags),
+              metrics.counter("lcloud.sql.errors", tags),
+              metrics.counter("lcloud.sql.fallbacks", tags)));
+    }
+
+    metrics.gauge("lcloud.sql.membership", () -> membership, "service", serviceName);
+    metrics.gauge(
+        "lcloud.sql.heartbeat.age",
+        () -> alive ? (System.nanoTime() - heartbeat) / 1e9 : Double.NaN,
+        "service",
+        serviceName);
+    metrics.gauge(
+        "lcloud.sql.ping.interval", () -> interval.get().toNanos() / 1e9, "service", serviceName);
+  }
+
+  /**
+   * Record latency, rows and errors of statement
+   *
+   * @param operation operation
+   * @param statement statement mono
+   * @param rows returned or affected rows of result
+   * @param <T> result type
+   * @return instrumented mono
+   */
+  <T> Mono<T> timed(Operation operation, Mono<T> statement, ToLongFunction<T> rows) {
+    var meters = this.meters.get(operation);
+
+    return Mono.defer(
+        () -> {
+          var start = System.nanoTime();
+
+          return statement
+              .doOnNext(value -> meters.rows.increment(rows.applyAsLong(value)))
+              .doOnSuccess(value -> meters.latency.record(System.nanoTime() - start))
+              .doOnError(
+                  throwable -> {
+                    meters.latency.record(System.nanoTime() - start);
+                    meters.errors.increment();
+                  });
+        });
+  }
+
+  /**
+   * Count fallback calls
+   *
+   * @param operation operation
+   * @param fallback error fallback
+   * @param <T> result type
+   * @return counting fallback
+   */
+  <T> Function<Throwable, Mono<T>> fallback(
+      Operation operation, Function<Throwable, Mono<T>> fallback) {
+    var counter = meters.get(operation).fallbacks;
+
+    return throwable -> {
+      counter.increment();
+      return fallback.apply(throwable);
+    };
+  }
+
+  /** Self-instance is refreshed now */
+  void heartbeat() {
+    heartbeat = System.nanoTime();
+    alive = true;
+  }
+
+  /**
+   * Instances are looked up
+   *
+   * @param size instances count
+   */
+  void membership(int size) {
+    membership = size;
+  }
+
+  /** Instrumented operations, tag values are lower case names */
+  enum Operation {
+    INITIALIZE,
+    PING,
+    HEARTBEAT,
+    LOOKUP,
+    LOOKUP_ALL,
+    CLEAN,
+    CLEAN_ALL;
+
+    final String tag = name().toLowerCase(Locale.ROOT);
+  }
+
+  private record Meters(Histogram latency, Counter rows, Counter errors, Counter fallbacks) {}
+}
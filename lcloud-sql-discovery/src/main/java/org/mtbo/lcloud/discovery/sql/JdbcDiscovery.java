@@ -0,0 +1,317 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import javax.annotation.Nullable;
+import org.mtbo.lcloud.logging.FileLineLogger;
+
+/**
+ * Cloud discovery using db over plain JDBC, without Spring Data and Reactor. Same table, schema and
+ * statements as {@link SqlDiscovery}, so both can serve one cluster.
+ *
+ * <p>Calls are blocking and are meant to run on virtual threads, see {@link #start(Consumer,
+ * Consumer)}. One connection is opened lazily and guarded by a lock, its prepared statements are
+ * reused for its lifetime. Connection is reopened after any SQL error.
+ */
+public class JdbcDiscovery implements AutoCloseable {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(JdbcDiscovery.class.getName());
+
+  final Config config;
+
+  private final double interval;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Map<NamedSql, PreparedStatement> statements = new HashMap<>();
+
+  @Nullable private Connection connection;
+
+  @Nullable private Queries queries;
+
+  /**
+   * Constructor with parameters
+   *
+   * @param config configuration
+   */
+  public JdbcDiscovery(Config config) {
+    this.config = config;
+    this.interval = config.updateInterval.toMillis() / 1_000.0;
+  }
+
+  /**
+   * Creates instances table if not exists
+   *
+   * @return True in case of OK
+   * @throws SQLException if connection fails
+   */
+  public boolean initialize() throws SQLException {
+    return call(
+        connection ->
+            JdbcSchema.create(connection, Objects.requireNonNull(queries).dialect, config.storage));
+  }
+
+  /**
+   * Register self-instance or refresh its last ping time
+   *
+   * @return true if instance row is inserted or updated
+   * @throws SQLException on database error
+   */
+  public boolean ping() throws SQLException {
+    var count = call(connection -> execute(queries().upsert).executeUpdate());
+
+    if (logger.isLoggable(Level.FINER)) {
+      logger.finer(
+          String.format(
+              "Ping upsert: %1$d %2$s %3$s", count, config.serviceName, config.instanceName));
+    }
+
+    return count == 1;
+  }
+
+  /**
+   * Alive instances of the service
+   *
+   * @return set of instances names
+   * @throws SQLException on database error
+   */
+  public Set<String> lookup() throws SQLException {
+    return call(
+        connection -> {
+          var names = new HashSet<String>();
+          try (var resultSet = execute(queries().lookup).executeQuery()) {
+            while (resultSet.next()) {
+              names.add(resultSet.getString(1));
+            }
+          }
+          return names;
+        });
+  }
+
+  /**
+   * Clean self if expired. Use on service shutdown.
+   *
+   * @return count of cleaned instances
+   * @throws SQLException on database error
+   */
+  public long clean() throws SQLException {
+    return call(connection -> execute(queries().clean).executeLargeUpdate());
+  }
+
+  /**
+   * Clean all out-of-time instances of the service. Use on service start.
+   *
+   * @return count of cleaned instances
+   * @throws SQLException on database error
+   */
+  public long cleanAll() throws SQLException {
+    return call(connection -> execute(queries().cleanAll).executeLargeUpdate());
+  }
+
+  /**
+   * Start virtual thread pinging every half of update interval and looking up every update
+   * interval. Lookup result is reported on change.
+   *
+   * @param onLookup receives instances names set when it changes
+   * @param onError receives database errors and runtime exceptions, including thrown by onLookup,
+   *     loop continues
+   * @return running loop, close it to stop
+   */
+  public Running start(Consumer<Set<String>> onLookup, Consumer<Exception> onError) {
+    return new Running(
+        Thread.ofVirtual()
+            .name("lcloud-jdbc-" + config.serviceName)
+            .start(
+                () -> {
+                  Set<String> last = null;
+                  var half = config.updateInterval.dividedBy(2);
+
+                  for (long tick = 0; !Thread.currentThread().isInterrupted(); tick++) {
+                    try {
+                      ping();
+
+                      if (tick % 2 == 0) {
+                        var names = lookup();
+                        if (!names.equals(last)) {
+                          last = names;
+                          onLookup.accept(names);
+                        }
+                      }
+                    } catch (SQLException | RuntimeException e) {
+                      onError.accept(e);
+                    }
+
+                    try {
+                      Thread.sleep(half);
+                    } catch (InterruptedException e) {
+                      return;
+                    }
+                  }
+                }));
+  }
+
+  /** Close connection and its prepared statements */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      disconnect();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private <T> T call(Call<T> call) throws SQLException {
+    lock.lock();
+    try {
+      if (connection == null) {
+        connection = DriverManager.getConnection(config.url);
+        connection.setAutoCommit(true);
+        queries = new Queries(Dialect.of(connection.getMetaData().getDatabaseProductName()));
+      }
+
+      try {
+        return call.call(connection);
+      } catch (SQLException e) {
+        disconnect();
+        throw e;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Queries queries() {
+    return Objects.requireNonNull(queries);
+  }
+
+  private PreparedStatement execute(NamedSql sql) throws SQLException {
+    var statement = statements.get(sql);
+    if (statement == null) {
+      statement = Objects.requireNonNull(connection).prepareStatement(sql.sql());
+      statements.put(sql, statement);
+    }
+
+    var names = sql.names();
+    for (int i = 0; i < names.size(); i++) {
+      switch (names.get(i)) {
+        case "id" -> statement.setObject(i + 1, UUID.randomUUID());
+        case "service" -> statement.setString(i + 1, config.serviceName);
+        case "name" -> statement.setString(i + 1, config.instanceName);
+        case "interval" -> statement.setDouble(i + 1, interval);
+        default -> throw new SQLException("Unknown parameter: " + names.get(i));
+      }
+    }
+
+    return statement;
+  }
+
+  private void disconnect() {
+    statements.clear();
+    queries = null;
+
+    if (connection != null) {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        logger.finer("Close failed: " + e.getMessage(), e);
+      }
+      connection = null;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Call<T> {
+    T call(Connection connection) throws SQLException;
+  }
+
+  /** Statements of detected dialect, parsed once per connection */
+  private static final class Queries {
+
+    final Dialect dialect;
+
+    final NamedSql upsert;
+
+    final NamedSql lookup;
+
+    final NamedSql clean;
+
+    final NamedSql cleanAll;
+
+    Queries(Dialect dialect) {
+      this.dialect = dialect;
+      this.upsert = NamedSql.parse(dialect.upsert);
+      this.lookup =
+          NamedSql.parse(
+              "select name from instances where service = :service AND " + dialect.alive());
+      this.clean =
+          NamedSql.parse(
+              "delete from instances where service = :service AND name = :name AND "
+                  + dialect.expired());
+      this.cleanAll =
+          NamedSql.parse("delete from instances where service = :service AND " + dialect.expired());
+    }
+  }
+
+  /**
+   * Running ping and lookup loop
+   *
+   * @param thread virtual thread of the loop
+   */
+  public record Running(Thread thread) implements AutoCloseable {
+
+    /** Interrupt loop and wait for its completion */
+    @Override
+    public void close() {
+      thread.interrupt();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * jdbc discovery configuration
+   *
+   * @param url JDBC url, including credentials
+   * @param serviceName service name
+   * @param instanceName instance name
+   * @param updateInterval update interval
+   * @param storage instances table storage profile
+   */
+  public record Config(
+      String url,
+      String serviceName,
+      String instanceName,
+      Duration updateInterval,
+      SqlDiscovery.Storage storage) {
+
+    /**
+     * Configuration keeping current storage profile
+     *
+     * @param url JDBC url, including credentials
+     * @param serviceName service name
+     * @param instanceName instance name
+     * @param updateInterval update interval
+     */
+    public Config(String url, String serviceName, String instanceName, Duration updateInterval) {
+      this(url, serviceName, instanceName, updateInterval, SqlDiscovery.Storage.DEFAULT);
+    }
+  }
+}
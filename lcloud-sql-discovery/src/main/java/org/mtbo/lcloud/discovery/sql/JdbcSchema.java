@@ -0,0 +1,109 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.mtbo.lcloud.logging.FileLineLogger;
+
+/** JDBC executor of {@link Migrations}, same rules as {@link Schema} */
+final class JdbcSchema {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(JdbcSchema.class.getName());
+
+  private JdbcSchema() {}
+
+  /**
+   * Apply migrations newer than stored schema version, then switch storage profile if it differs
+   * from stored one
+   *
+   * @param connection connection in auto-commit mode
+   * @param dialect database dialect
+   * @param storage storage profile
+   * @return true if schema is current
+   */
+  static boolean create(Connection connection, Dialect dialect, SqlDiscovery.Storage storage) {
+    var state = state(connection);
+
+    var ok = state.version() >= Migrations.VERSION || migrate(connection, dialect, state.version());
+
+    var statements = dialect.storage(storage);
+
+    // profile is recorded only if it is applied, unsupported one leaves table as is
+    if (ok && !statements.isEmpty() && !storage.name().equals(state.storage())) {
+      ok = statements.stream().allMatch(sql -> execute(connection, sql, false));
+      ok =
+          ok
+              && update(
+                  connection,
+                  "update instances_schema set storage = ? where id = 1",
+                  storage.name());
+    }
+
+    return ok;
+  }
+
+  private static Migrations.State state(Connection connection) {
+    try (var statement = connection.createStatement();
+        var resultSet =
+            statement.executeQuery("select version, storage from instances_schema where id = 1")) {
+      return resultSet.next()
+          ? new Migrations.State(resultSet.getInt("version"), resultSet.getString("storage"))
+          : new Migrations.State(0, null);
+    } catch (SQLException e) {
+      return new Migrations.State(0, null);
+    }
+  }
+
+  private static boolean migrate(Connection connection, Dialect dialect, int current) {
+    execute(connection, Migrations.VERSION_TABLE, false);
+
+    for (var migration : Migrations.of(dialect)) {
+      if (migration.version() <= current) {
+        continue;
+      }
+
+      for (var statement : migration.statements()) {
+        if (!execute(connection, statement.sql(), statement.optional())) {
+          return false;
+        }
+      }
+
+      if (!update(
+              connection,
+              "update instances_schema set version = ? where id = 1 and version < ?",
+              migration.version(),
+              migration.version())
+          && !update(
+              connection,
+              "insert into instances_schema (id, version) values (1, ?)",
+              migration.version())) {
+        logger.finer("Schema version is stored concurrently: " + migration.version());
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean execute(Connection connection, String sql, boolean optional) {
+    try (var statement = connection.createStatement()) {
+      statement.execute(sql);
+      return true;
+    } catch (SQLException e) {
+      logger.finer("Schema statement failed: " + e.getMessage(), e);
+      return optional;
+    }
+  }
+
+  private static boolean update(Connection connection, String sql, Object... values) {
+    try (var statement = connection.prepareStatement(sql)) {
+      for (int i = 0; i < values.length; i++) {
+        statement.setObject(i + 1, values[i]);
+      }
+      return statement.executeUpdate() > 0;
+    } catch (SQLException e) {
+      logger.finer("Schema update failed: " + e.getMessage(), e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.util.Set;
+
+/** Change of service membership, emitted by {@link SqlDiscovery#watch} */
+public sealed interface MembershipEvent {
+
+  /**
+   * Instance became alive
+   *
+   * @param name instance name
+   */
+  record Joined(String name) implements MembershipEvent {}
+
+  /**
+   * Instance left or expired
+   *
+   * @param name instance name
+   */
+  record Left(String name) implements MembershipEvent {}
+
+  /**
+   * Full set of alive instances, emitted first
+   *
+   * @param names instances names
+   */
+  record Snapshot(Set<String> names) implements MembershipEvent {}
+}
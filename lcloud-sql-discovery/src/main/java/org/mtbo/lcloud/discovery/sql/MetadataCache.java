@@ -0,0 +1,95 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.spi.Row;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decoded metadata of one {@link SqlDiscovery#lookupMetadata} subscriber.
+ *
+ * <p>Change sequence of instance row is advanced on insert, revive and metadata change, so it
+ * versions metadata. Metadata columns are decoded only if sequence differs from cached one.
+ * Instances missing from the last result are evicted.
+ */
+final class MetadataCache {
+
+  private final String sql;
+
+  private final String serviceName;
+
+  private final double interval;
+
+  private Map<String, Entry> entries = new HashMap<>();
+
+  /**
+   * Construct empty cache
+   *
+   * @param serviceName looked up service
+   * @param interval expiry interval, seconds
+   * @param dialect database dialect
+   */
+  MetadataCache(String serviceName, double interval, Dialect dialect) {
+    this.serviceName = serviceName;
+    this.interval = interval;
+    this.sql =
+        "select name, seq, host, port, zone, weight from instances where service = :service AND "
+            + dialect.alive();
+  }
+
+  /**
+   * Request alive instances, decode changed metadata
+   *
+   * @param template connection
+   * @return metadata by instance name
+   */
+  Mono<Map<String, SqlDiscovery.Metadata>> request(R2dbcEntityTemplate template) {
+    return template
+        .getDatabaseClient()
+        .sql(sql)
+        .bind("service", serviceName)
+        .bind("interval", interval)
+        .map((row, metadata) -> decode(row))
+        .all()
+        .collectMap(Entry::name)
+        .map(
+            next -> {
+              entries = next;
+
+              var result = new HashMap<String, SqlDiscovery.Metadata>(next.size());
+              next.forEach((name, entry) -> result.put(name, entry.metadata()));
+              return result;
+            });
+  }
+
+  private Entry decode(Row row) {
+    var name = row.get("name", String.class);
+    var seq = row.get("seq", Long.class);
+
+    var cached = entries.get(name);
+    if (cached != null && seq != null && seq.equals(cached.seq())) {
+      return cached;
+    }
+
+    var host = row.get("host", String.class);
+    if (host == null) {
+      return new Entry(name, seq, SqlDiscovery.Metadata.NONE);
+    }
+
+    var port = row.get("port", Integer.class);
+    var zone = row.get("zone", String.class);
+    var weight = row.get("weight", Integer.class);
+
+    return new Entry(
+        name,
+        seq,
+        new SqlDiscovery.Metadata(
+            host, port != null ? port : 0, zone != null ? zone : "", weight != null ? weight : 0));
+  }
+
+  private record Entry(String name, @Nullable Long seq, SqlDiscovery.Metadata metadata) {}
+}
@@ -0,0 +1,108 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Instances table migrations, shared by R2DBC and JDBC backends. All statements are idempotent,
+ * version is stored in {@code instances_schema} table.
+ */
+final class Migrations {
+
+  /** Current schema version */
+  static final int VERSION = 4;
+
+  /** Version table DDL */
+  static final String VERSION_TABLE =
+      "create table if not exists instances_schema (id int not null primary key, version int not null)";
+
+  private Migrations() {}
+
+  /**
+   * Migrations in version order
+   *
+   * @param dialect database dialect
+   * @return migrations
+   */
+  static List<Migration> of(Dialect dialect) {
+    var v2 =
+        new ArrayList<>(
+            List.of(
+                new Statement("create sequence if not exists instances_seq", false),
+                new Statement("alter table instances add column if not exists seq bigint", false),
+                new Statement(
+                    "alter table instances alter column seq set default nextval('instances_seq')",
+                    false),
+                new Statement(dialect.serviceIndex, false)));
+
+    if (dialect.notifyTrigger != null) {
+      v2.add(new Statement(dialect.notifyTrigger, false));
+    }
+
+    return List.of(
+        new Migration(
+            1,
+            List.of(
+                new Statement(
+                    """
+                    create table if not exists instances
+                    (
+                        id      uuid not null primary key,
+                        service varchar(255),
+                        name    varchar(255),
+                        last    timestamp with time zone default now(),
+                        constraint instances_uniq
+                            unique (name, service)
+                    );
+                    """,
+                    false),
+                new Statement("create index if not exists last_index on instances (last)", false),
+                new Statement(
+                    "alter table public.instances alter column id set default gen_random_uuid()",
+                    true))),
+        new Migration(2, v2),
+        new Migration(
+            3,
+            List.of(
+                new Statement(
+                    "alter table instances_schema add column if not exists storage varchar(32)",
+                    false))),
+        new Migration(
+            4,
+            List.of(
+                new Statement(
+                    "alter table instances add column if not exists host varchar(255)", false),
+                new Statement("alter table instances add column if not exists port int", false),
+                new Statement(
+                    "alter table instances add column if not exists zone varchar(64)", false),
+                new Statement(
+                    "alter table instances add column if not exists weight int", false))));
+  }
+
+  /**
+   * Idempotent DDL statement
+   *
+   * @param sql statement text
+   * @param optional failure does not prevent version advance
+   */
+  record Statement(String sql, boolean optional) {}
+
+  /**
+   * Schema migration
+   *
+   * @param version version after migration
+   * @param statements statements to apply in order
+   */
+  record Migration(int version, List<Statement> statements) {}
+
+  /**
+   * Stored schema state
+   *
+   * @param version schema version
+   * @param storage storage profile name, null if never switched
+   */
+  record State(int version, @Nullable String storage) {}
+}
@@ -0,0 +1,73 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Statement with {@code :name} parameters converted to positional form
+ *
+ * @param sql statement with positional placeholders
+ * @param names parameter name of each placeholder, in order
+ */
+record NamedSql(String sql, List<String> names) {
+
+  /**
+   * Replace {@code :name} parameters with JDBC {@code ?}. Casts ({@code ::}) and quoted text are
+   * kept.
+   *
+   * @param text statement with named parameters
+   * @return positional statement
+   */
+  static NamedSql parse(String text) {
+    return parse(text, index -> "?");
+  }
+
+  /**
+   * Replace {@code :name} parameters with R2DBC {@code $1, $2, ...}, one index per occurrence
+   *
+   * @param text statement with named parameters
+   * @return positional statement
+   */
+  static NamedSql indexed(String text) {
+    return parse(text, index -> "$" + (index + 1));
+  }
+
+  private static NamedSql parse(String text, IntFunction<String> placeholder) {
+    var sql = new StringBuilder(text.length());
+    var names = new ArrayList<String>();
+
+    var quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == ':') {
+        if (i + 1 < text.length() && text.charAt(i + 1) == ':') {
+          sql.append("::");
+          i++;
+          continue;
+        }
+
+        var end = i + 1;
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+          end++;
+        }
+
+        if (end > i + 1) {
+          sql.append(placeholder.apply(names.size()));
+          names.add(text.substring(i + 1, end));
+          i = end - 1;
+          continue;
+        }
+      }
+
+      sql.append(c);
+    }
+
+    return new NamedSql(sql.toString(), List.copyOf(names));
+  }
+}
@@ -0,0 +1,124 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay before next ping. Fixed schedule waits half of update interval. Adaptive schedule keeps
+ * exponential moving averages of ping latency and error rate:
+ *
+ * <ul>
+ *   <li>while instance is alive and pings succeed, delay is bounded by half of time left before
+ *       expiry minus expected latency, so at least two pings are attempted before instance expires;
+ *   <li>after failed ping, or when instance is not registered yet, delay grows up to whole update
+ *       interval with error rate and latency, so failed over database is not hammered by all
+ *       instances.
+ * </ul>
+ *
+ * <p>Jitter spreads delays randomly, first delay is a random phase offset, so instances started
+ * together do not stay phase locked.
+ */
+final class PingSchedule {
+
+  /** Weight of last sample in moving averages */
+  private static final double ALPHA = 0.2;
+
+  private final SqlDiscovery.Schedule config;
+
+  private final long interval;
+
+  private final long base;
+
+  private double latency;
+
+  private double errors;
+
+  private long lastSuccess;
+
+  private boolean registered;
+
+  /** Last ping failed */
+  private boolean failing;
+
+  private boolean phased;
+
+  private volatile long effective;
+
+  /**
+   * Constructor with parameters
+   *
+   * @param config schedule configuration
+   * @param updateInterval update interval
+   */
+  PingSchedule(SqlDiscovery.Schedule config, Duration updateInterval) {
+    this.config = config;
+    this.interval = updateInterval.toNanos();
+    this.base = interval / 2;
+    this.effective = base;
+  }
+
+  /**
+   * Record successful ping
+   *
+   * @param nanos ping latency
+   */
+  synchronized void success(long nanos) {
+    latency += ALPHA * (nanos - latency);
+    errors -= ALPHA * errors;
+    lastSuccess = System.nanoTime();
+    registered = true;
+    failing = false;
+  }
+
+  /**
+   * Record failed ping
+   *
+   * @param nanos ping latency
+   */
+  synchronized void failure(long nanos) {
+    latency += ALPHA * (nanos - latency);
+    errors += ALPHA * (1 - errors);
+    failing = true;
+  }
+
+  /**
+   * Delay before next ping, becomes {@link #effective()}
+   *
+   * @return delay
+   */
+  synchronized Duration next() {
+    double delay = base;
+
+    if (config.adaptive()) {
+      var pressure = Math.min(1, Math.max(errors, latency / base));
+      delay *= 1 + pressure;
+    }
+
+    if (config.jitter() > 0) {
+      var random = ThreadLocalRandom.current();
+      delay *= phased ? 1 + config.jitter() * (2 * random.nextDouble() - 1) : random.nextDouble();
+      phased = true;
+    }
+
+    if (config.adaptive() && registered && !failing) {
+      var slack = lastSuccess + interval - System.nanoTime() - 2 * latency;
+      if (slack > 0) {
+        delay = Math.max(Math.min(delay, slack / 2), base / 8.0);
+      }
+    }
+
+    effective = (long) delay;
+    return Duration.ofNanos(effective);
+  }
+
+  /**
+   * Last computed delay
+   *
+   * @return delay
+   */
+  Duration effective() {
+    return Duration.ofNanos(effective);
+  }
+}
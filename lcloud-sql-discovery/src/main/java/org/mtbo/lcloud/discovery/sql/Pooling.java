@@ -0,0 +1,78 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.Optional;
+import reactor.core.publisher.Mono;
+
+/**
+ * Connection pool over factory.
+ *
+ * <p>Only place referencing r2dbc-pool, loaded only if {@link SqlDiscovery.Pool#enabled()}, so
+ * r2dbc-pool is optional runtime dependency of discovery without pooling.
+ */
+final class Pooling {
+
+  private final ConnectionPool pool;
+
+  /**
+   * Create pool
+   *
+   * @param factory not pooled factory
+   * @param config pool configuration
+   */
+  Pooling(ConnectionFactory factory, SqlDiscovery.Pool config) {
+    pool =
+        new ConnectionPool(
+            ConnectionPoolConfiguration.builder(factory)
+                .initialSize(config.minSize())
+                .minIdle(config.minSize())
+                .maxSize(config.maxSize())
+                .maxIdleTime(config.maxIdleTime())
+                .backgroundEvictionInterval(config.maxIdleTime().dividedBy(2))
+                .build());
+  }
+
+  /**
+   * Pooled factory
+   *
+   * @return factory
+   */
+  ConnectionFactory factory() {
+    return pool;
+  }
+
+  /**
+   * Open {@link SqlDiscovery.Pool#minSize()} connections in advance
+   *
+   * @return count of warmed up connections
+   */
+  Mono<Integer> warmup() {
+    return pool.warmup();
+  }
+
+  /**
+   * Current pool statistics
+   *
+   * @return statistics, empty if pool does not collect them
+   */
+  Optional<SqlDiscovery.PoolStatistics> statistics() {
+    return pool.getMetrics()
+        .map(
+            metrics ->
+                new SqlDiscovery.PoolStatistics(
+                    metrics.acquiredSize(),
+                    metrics.allocatedSize(),
+                    metrics.idleSize(),
+                    metrics.pendingAcquireSize(),
+                    metrics.getMaxAllocatedSize()));
+  }
+
+  /** Close pooled connections */
+  void dispose() {
+    pool.dispose();
+  }
+}
@@ -0,0 +1,126 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.spi.Connection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.logging.Level;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import org.springframework.r2dbc.connection.SingleConnectionFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Deletes expired instances of one service in bounded batches. Reaping node of the service is
+ * elected by session advisory lock held on dedicated connection, other nodes wait for the lock.
+ * Lock is released when connection is closed, so next node takes over after leader shutdown or
+ * crash. Databases without advisory locks reap on every node.
+ *
+ * <p>Instances expire after update interval of their service, which only nodes of that service
+ * know, so reaping and election are scoped to the service.
+ */
+final class Reaper {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(Reaper.class.getName());
+
+  /** Advisory lock key seed, "lcloud" in ASCII */
+  static final long LOCK = 0x6c636c6f7564L;
+
+  private final Connections connections;
+
+  private final SqlDiscovery.Reap config;
+
+  private final String service;
+
+  private final double interval;
+
+  /**
+   * Constructor with parameters
+   *
+   * @param connections connections
+   * @param config reaper configuration
+   * @param service reaped service
+   * @param updateInterval instances of the service expire after this interval
+   */
+  Reaper(
+      Connections connections, SqlDiscovery.Reap config, String service, Duration updateInterval) {
+    this.connections = connections;
+    this.config = config;
+    this.service = service;
+    this.interval = updateInterval.toMillis() / 1_000.0;
+  }
+
+  /**
+   * Advisory lock key of service, 64 bit FNV-1a hash of its name seeded by {@link #LOCK}
+   *
+   * @param service service name
+   * @return lock key
+   */
+  static long lock(String service) {
+    long hash = LOCK ^ 0xcbf29ce484222325L;
+    for (var b : service.getBytes(StandardCharsets.UTF_8)) {
+      hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Elect and reap until error or cancel
+   *
+   * @return counts of deleted instances per batch
+   */
+  Flux<Long> run() {
+    return Flux.usingWhen(
+        connections.directConnectionFactory.create(),
+        connection -> {
+          var client =
+              DatabaseClient.create(
+                  new SingleConnectionFactory(
+                      connection, connections.directConnectionFactory.getMetadata(), true));
+
+          return lead(client)
+              .thenMany(
+                  Flux.interval(Duration.ZERO, config.interval())
+                      .onBackpressureDrop()
+                      .concatMap(tick -> reap(client), 1));
+        },
+        Connection::close);
+  }
+
+  private Mono<Void> lead(DatabaseClient client) {
+    var tryLock = connections.dialect.tryLock();
+    if (tryLock == null) {
+      return Mono.empty();
+    }
+
+    return Mono.defer(
+            () ->
+                client
+                    .sql(tryLock)
+                    .bind("key", lock(service))
+                    .map(row -> row.get("locked", Boolean.class))
+                    .one())
+        .filter(Boolean::booleanValue)
+        .repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> Mono.delay(config.interval())))
+        .doOnNext(locked -> logger.fine("Reaper elected: " + service))
+        .then();
+  }
+
+  private Mono<Long> reap(DatabaseClient client) {
+    return client
+        .sql(connections.dialect.reap())
+        .bind("service", service)
+        .bind("interval", interval)
+        .bind("limit", config.batchSize())
+        .fetch()
+        .rowsUpdated()
+        .doOnNext(
+            count -> {
+              if (logger.isLoggable(Level.FINER)) {
+                logger.finer(String.format("Reaped: %1$d", count));
+              }
+            });
+  }
+}
@@ -0,0 +1,134 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Routes read requests to healthy replicas in turn. Replica health is checked lazily, at most once
+ * per check interval. Failed request marks replica unhealthy until next check and is repeated on
+ * primary. Without healthy replicas requests go to primary.
+ */
+final class ReplicaRouter implements AutoCloseable {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(ReplicaRouter.class.getName());
+
+  private final Connections primary;
+
+  private final SqlDiscovery.Replicas config;
+
+  private final List<Replica> replicas;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * Constructor with parameters
+   *
+   * @param primary primary connections
+   * @param config replicas configuration
+   * @param pool connection pool configuration of each replica
+   */
+  ReplicaRouter(Connections primary, SqlDiscovery.Replicas config, SqlDiscovery.Pool pool) {
+    this.primary = primary;
+    this.config = config;
+    this.replicas =
+        config.connectionStrings().stream()
+            .map(connectionString -> new Replica(connectionString, pool))
+            .toList();
+  }
+
+  /**
+   * Run read request on replica or primary
+   *
+   * @param request request
+   * @param <R> result type
+   * @return request result
+   */
+  <R> Mono<R> read(Function<R2dbcEntityTemplate, Mono<R>> request) {
+    if (replicas.isEmpty()) {
+      return request.apply(primary.template);
+    }
+
+    return select()
+        .map(
+            replica ->
+                request
+                    .apply(replica.connections.template)
+                    .onErrorResume(
+                        throwable -> {
+                          replica.fail(throwable);
+                          return request.apply(primary.template);
+                        }))
+        .defaultIfEmpty(Mono.defer(() -> request.apply(primary.template)))
+        .flatMap(Function.identity());
+  }
+
+  @Override
+  public void close() {
+    replicas.forEach(replica -> replica.connections.close());
+  }
+
+  private Mono<Replica> select() {
+    var start = Math.floorMod(next.getAndIncrement(), replicas.size());
+
+    return Flux.range(0, replicas.size())
+        .map(i -> replicas.get((start + i) % replicas.size()))
+        .concatMap(replica -> replica.healthy().filter(Boolean::booleanValue).map(ok -> replica), 1)
+        .next();
+  }
+
+  private final class Replica {
+
+    /** Replica identity for logs, without credentials and options */
+    final String name;
+
+    final Connections connections;
+
+    private volatile boolean healthy;
+
+    private volatile long checked = System.nanoTime() - config.checkInterval().toNanos();
+
+    Replica(String connectionString, SqlDiscovery.Pool pool) {
+      this.name = ShardedSqlDiscovery.shardName(connectionString);
+      this.connections = new Connections(connectionString, pool);
+    }
+
+    Mono<Boolean> healthy() {
+      if (System.nanoTime() - checked < config.checkInterval().toNanos()) {
+        return Mono.just(healthy);
+      }
+
+      return connections
+          .template
+          .getDatabaseClient()
+          .sql(connections.dialect.replicaLag())
+          .map(row -> row.get("lag", Double.class))
+          .one()
+          .map(lag -> lag * 1_000 <= config.maxLag().toMillis())
+          .doOnError(throwable -> logger.finer("Replica check failed: " + name, throwable))
+          .onErrorReturn(false)
+          .defaultIfEmpty(false)
+          .doOnNext(this::update);
+    }
+
+    void fail(Throwable throwable) {
+      logger.finer("Replica request failed: " + name, throwable);
+      update(false);
+    }
+
+    private void update(boolean healthy) {
+      if (this.healthy != healthy) {
+        logger.fine("Replica " + name + (healthy ? " is healthy" : " is unhealthy"));
+      }
+
+      this.healthy = healthy;
+      this.checked = System.nanoTime();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import org.mtbo.lcloud.logging.FileLineLogger;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versioned instances table DDL.
+ *
+ * <p>Schema version is stored in {@code instances_schema} table. Migrations newer than stored
+ * version are applied in order, all statements are idempotent, so concurrent initialization by many
+ * instances is safe. Version is advanced only if all mandatory statements of migration succeed.
+ *
+ * <p>Storage profile is stored next to version and is switched only if requested profile differs.
+ * Profile without statements for the dialect, including {@link SqlDiscovery.Storage#DEFAULT}, is
+ * neither applied nor stored. Schema is not current if profile is applied but is not stored, it is
+ * applied again on next initialization.
+ */
+final class Schema {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(Schema.class.getName());
+
+  private Schema() {}
+
+  /**
+   * Apply migrations newer than stored schema version, then switch storage profile if it differs
+   * from stored one
+   *
+   * @param template connection
+   * @param dialect database dialect
+   * @param storage storage profile
+   * @return true if schema is current
+   */
+  static Mono<Boolean> create(
+      R2dbcEntityTemplate template, Dialect dialect, SqlDiscovery.Storage storage) {
+    return state(template)
+        .flatMap(
+            state ->
+                (state.version() >= Migrations.VERSION
+                        ? Mono.just(true)
+                        : migrate(template, dialect, state.version()))
+                    .flatMap(
+                        ok ->
+                            ok
+                                    && !dialect.storage(storage).isEmpty()
+                                    && !storage.name().equals(state.storage())
+                                ? switchStorage(template, dialect, storage)
+                                : Mono.just(ok)));
+  }
+
+  /**
+   * Stored schema state
+   *
+   * @param template connection
+   * @return state, version is 0 if schema is not created or is older than 3
+   */
+  static Mono<Migrations.State> state(R2dbcEntityTemplate template) {
+    return template
+        .getDatabaseClient()
+        .sql("select version, storage from instances_schema where id = 1")
+        .map(
+            (row, metadata) ->
+                new Migrations.State(
+                    row.get("version", Integer.class), row.get("storage", String.class)))
+        .one()
+        .defaultIfEmpty(new Migrations.State(0, null))
+        .onErrorReturn(new Migrations.State(0, null));
+  }
+
+  private static Mono<Boolean> switchStorage(
+      R2dbcEntityTemplate template, Dialect dialect, SqlDiscovery.Storage storage) {
+    return Flux.fromIterable(dialect.storage(storage))
+        .concatMap(sql -> execute(template, new Migrations.Statement(sql, false)))
+        .all(ok -> ok)
+        .flatMap(
+            ok ->
+                ok
+                    ? template
+                        .getDatabaseClient()
+                        .sql("update instances_schema set storage = :storage where id = 1")
+                        .bind("storage", storage.name())
+                        .fetch()
+                        .rowsUpdated()
+                        .map(count -> count > 0)
+                        .onErrorResume(
+                            throwable -> {
+                              logger.finer(
+                                  "Schema update failed: " + throwable.getMessage(), throwable);
+                              return Mono.just(false);
+                            })
+                    : Mono.just(false));
+  }
+
+  private static Mono<Boolean> migrate(R2dbcEntityTemplate template, Dialect dialect, int current) {
+    return execute(template, new Migrations.Statement(Migrations.VERSION_TABLE, false))
+        .thenMany(Flux.fromIterable(Migrations.of(dialect)))
+        .filter(migration -> migration.version() > current)
+        .concatMap(
+            migration ->
+                Flux.fromIterable(migration.statements())
+                    .concatMap(statement -> execute(template, statement))
+                    .all(ok -> ok)
+                    .flatMap(
+                        ok ->
+                            ok
+                                ? store(template, migration.version()).thenReturn(true)
+                                : Mono.just(false)))
+        .takeUntil(ok -> !ok)
+        .all(ok -> ok);
+  }
+
+  private static Mono<Boolean> execute(
+      R2dbcEntityTemplate template, Migrations.Statement statement) {
+    return template
+        .getDatabaseClient()
+        .sql(statement.sql())
+        .fetch()
+        .all()
+        .then(Mono.just(true))
+        .onErrorResume(
+            throwable -> {
+              logger.finer("Schema statement failed: " + throwable.getMessage(), throwable);
+              return Mono.just(statement.optional());
+            });
+  }
+
+  private static Mono<Void> store(R2dbcEntityTemplate template, int version) {
+    var databaseClient = template.getDatabaseClient();
+
+    return databaseClient
+        .sql("update instances_schema set version = :version where id = 1 and version < :version")
+        .bind("version", version)
+        .fetch()
+        .rowsUpdated()
+        .filter(count -> count == 0)
+        .flatMap(
+            count ->
+                databaseClient
+                    .sql("insert into instances_schema (id, version) values (1, :version)")
+                    .bind("version", version)
+                    .fetch()
+                    .rowsUpdated()
+                    .onErrorComplete())
+        .then();
+  }
+}
@@ -0,0 +1,33 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.util.Map;
+import java.util.Set;
+import reactor.core.publisher.Flux;
+
+/** Per-service views of one multi-service lookup */
+public final class ServiceViews {
+
+  private final Flux<Map<String, Set<String>>> lookup;
+
+  /**
+   * Share multi-service lookup between views. It is started by the first subscribed view and
+   * stopped when the last one cancels, late views immediately receive last result.
+   *
+   * @param lookup multi-service lookup
+   */
+  public ServiceViews(Flux<Map<String, Set<String>>> lookup) {
+    this.lookup = lookup.replay(1).refCount();
+  }
+
+  /**
+   * View of one service
+   *
+   * @param serviceName service name
+   * @return set of instances names flux
+   */
+  public Flux<Set<String>> service(String serviceName) {
+    return lookup.map(services -> services.getOrDefault(serviceName, Set.of()));
+  }
+}
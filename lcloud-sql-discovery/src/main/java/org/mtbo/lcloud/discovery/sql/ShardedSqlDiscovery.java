@@ -0,0 +1,291 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cloud discovery over several databases. Each service is mapped to one shard by consistent hashing
+ * of service name. Shard identity on the ring is its name from {@link Config#shardNames()}, or
+ * {@code host:port/database} of its connection string, so credentials and options can change
+ * without moving services. All instances of a service are registered and looked up in the same
+ * shard, each shard has own connections and schema.
+ */
+public class ShardedSqlDiscovery implements AutoCloseable {
+
+  /** Points on the hash ring per shard */
+  static final int VIRTUAL_NODES = 128;
+
+  final Config config;
+
+  private final List<SqlDiscovery> shards;
+
+  private final ConsistentHash<SqlDiscovery> ring;
+
+  /** Shard of own service */
+  private final SqlDiscovery own;
+
+  /**
+   * Constructor with parameters
+   *
+   * @param config configuration
+   */
+  public ShardedSqlDiscovery(Config config) {
+    this.config = config;
+
+    var names =
+        config.shardNames.isEmpty()
+            ? config.connectionStrings.stream().map(ShardedSqlDiscovery::shardName).toList()
+            : config.shardNames;
+
+    if (names.size() != config.connectionStrings.size()) {
+      throw new IllegalArgumentException(
+          "Shard names count "
+              + names.size()
+              + " differs from shards count "
+              + config.connectionStrings.size());
+    }
+
+    if (Set.copyOf(names).size() != names.size()) {
+      throw new IllegalArgumentException("Shard names are not unique: " + names);
+    }
+
+    this.shards =
+        config.connectionStrings.stream()
+            .map(
+                connectionString ->
+                    new SqlDiscovery(
+                        new SqlDiscovery.Config(
+                                connectionString,
+                                config.serviceName,
+                                config.instanceName,
+                                config.updateInterval)
+                            .withPool(config.pool)))
+            .toList();
+
+    this.ring =
+        new ConsistentHash<>(
+            shards, discovery -> names.get(shards.indexOf(discovery)), VIRTUAL_NODES);
+
+    this.own = ring.get(config.serviceName);
+  }
+
+  /**
+   * Stable shard name of connection string, without driver, credentials and options
+   *
+   * @param connectionString db connection string
+   * @return {@code host:port/database}, port only if present, protocol instead of absent host
+   */
+  static String shardName(String connectionString) {
+    var options = ConnectionFactoryOptions.parse(connectionString);
+
+    var host = options.getValue(ConnectionFactoryOptions.HOST);
+    var port = options.getValue(ConnectionFactoryOptions.PORT);
+
+    return (host != null ? host : options.getValue(ConnectionFactoryOptions.PROTOCOL))
+        + (port != null ? ":" + port : "")
+        + "/"
+        + options.getValue(ConnectionFactoryOptions.DATABASE);
+  }
+
+  /**
+   * Creates instances table in all shards in parallel
+   *
+   * @return True if all shards are initialized
+   */
+  public Mono<Boolean> initialize() {
+    return Flux.fromIterable(shards).flatMap(SqlDiscovery::initialize).all(ok -> ok);
+  }
+
+  /**
+   * Shard of service
+   *
+   * @param serviceName service name
+   * @return discovery bound to service shard
+   */
+  SqlDiscovery shard(String serviceName) {
+    return ring.get(serviceName);
+  }
+
+  /**
+   * Register self-instance in its service shard, see {@link SqlDiscovery#ping(Function)}
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return set of successful flux
+   */
+  public Mono<Boolean> ping(Function<Throwable, Mono<Boolean>> fallback) {
+    return own.ping(fallback);
+  }
+
+  /**
+   * Register self-instance and check instances of the service in its shard, see {@link
+   * SqlDiscovery#heartbeat(Function)}
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return flux of service instances names set, emitted on change
+   */
+  public Flux<Set<String>> heartbeat(Function<Throwable, Mono<Set<String>>> fallback) {
+    return own.heartbeat(fallback);
+  }
+
+  /**
+   * Check instances of the service in its shard, see {@link SqlDiscovery#lookup(Function)}
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return set of instances names flux
+   */
+  public Flux<Set<String>> lookup(Function<Throwable, Mono<Set<String>>> fallback) {
+    return own.lookup(fallback);
+  }
+
+  /**
+   * Check instances of many services. Services are grouped by shard, shards are requested in
+   * parallel and results are merged, new map is emitted when any shard result changes.
+   *
+   * @param services services names, empty set means all services of all shards
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return flux of instances names by service, each requested service is present
+   */
+  public Flux<Map<String, Set<String>>> lookupAll(
+      Set<String> services, Function<Throwable, Mono<Map<String, Set<String>>>> fallback) {
+    var groups = new LinkedHashMap<SqlDiscovery, Set<String>>();
+
+    if (services.isEmpty()) {
+      shards.forEach(shard -> groups.put(shard, Set.of()));
+    } else {
+      services.stream()
+          .collect(Collectors.groupingBy(this::shard, Collectors.toSet()))
+          .forEach(groups::put);
+    }
+
+    var lookups =
+        groups.entrySet().stream()
+            .map(group -> group.getKey().lookupAll(group.getValue(), fallback))
+            .toList();
+
+    return Flux.combineLatest(
+        lookups,
+        results -> {
+          var merged = new HashMap<String, Set<String>>();
+          for (var result : results) {
+            @SuppressWarnings("unchecked")
+            var map = (Map<String, Set<String>>) result;
+            merged.putAll(map);
+          }
+          return merged;
+        });
+  }
+
+  /**
+   * Clean out-of-time instances of the service in its shard
+   *
+   * @param fallback error handler
+   * @return count of cleaned instances
+   */
+  public Mono<Long> cleanAll(Function<Throwable, Mono<Long>> fallback) {
+    return own.cleanAll(fallback);
+  }
+
+  /**
+   * Clean self in its service shard. Use on service shutdown.
+   *
+   * @param fallback error handler
+   * @return count of cleaned instances
+   */
+  public Mono<Long> clean(Function<Throwable, Mono<Long>> fallback) {
+    return own.clean().onErrorResume(fallback);
+  }
+
+  /**
+   * Reap expired instances of the service in its shard, see {@link SqlDiscovery#reap(Function)}.
+   * Other shards are reaped by instances of services they hold.
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return counts of deleted instances per batch
+   */
+  public Flux<Long> reap(Function<Throwable, Mono<Long>> fallback) {
+    return own.reap(fallback);
+  }
+
+  /** Release pooled connections of all shards */
+  @Override
+  public void close() {
+    shards.forEach(SqlDiscovery::close);
+  }
+
+  /**
+   * sharded sql discovery configuration
+   *
+   * @param connectionStrings shards db connection strings
+   * @param serviceName service name
+   * @param instanceName instance name
+   * @param updateInterval update interval
+   * @param pool connection pool configuration of each shard
+   * @param shardNames shard identities on the hash ring in order of connection strings, empty to
+   *     derive them from connection strings
+   */
+  public record Config(
+      List<String> connectionStrings,
+      String serviceName,
+      String instanceName,
+      Duration updateInterval,
+      SqlDiscovery.Pool pool,
+      List<String> shardNames) {
+
+    /**
+     * Configuration with shard names derived from connection strings
+     *
+     * @param connectionStrings shards db connection strings
+     * @param serviceName service name
+     * @param instanceName instance name
+     * @param updateInterval update interval
+     * @param pool connection pool configuration of each shard
+     */
+    public Config(
+        List<String> connectionStrings,
+        String serviceName,
+        String instanceName,
+        Duration updateInterval,
+        SqlDiscovery.Pool pool) {
+      this(connectionStrings, serviceName, instanceName, updateInterval, pool, List.of());
+    }
+
+    /**
+     * Configuration without connection pooling
+     *
+     * @param connectionStrings shards db connection strings
+     * @param serviceName service name
+     * @param instanceName instance name
+     * @param updateInterval update interval
+     */
+    public Config(
+        List<String> connectionStrings,
+        String serviceName,
+        String instanceName,
+        Duration updateInterval) {
+      this(
+          connectionStrings, serviceName, instanceName, updateInterval, SqlDiscovery.Pool.DISABLED);
+    }
+
+    /**
+     * Copy with explicit shard names, keeps services on their shards when hosts move
+     *
+     * @param shardNames shard identities on the hash ring in order of connection strings
+     * @return new config
+     */
+    public Config withShardNames(List<String> shardNames) {
+      return new Config(
+          connectionStrings, serviceName, instanceName, updateInterval, pool, shardNames);
+    }
+  }
+}
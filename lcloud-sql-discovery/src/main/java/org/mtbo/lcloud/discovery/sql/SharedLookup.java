@@ -0,0 +1,44 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Lookups of one discovery shared between its subscribers, one per cached result ttl. Upstream is
+ * started by the first subscriber and stopped when the last one cancels. Shared flux itself is kept
+ * until discovery is closed, so resubscription never races with removal and starts one upstream.
+ */
+final class SharedLookup {
+
+  private final ConcurrentHashMap<Duration, Flux<Result>> lookups = new ConcurrentHashMap<>();
+
+  /**
+   * Get shared lookup or create new one
+   *
+   * @param ttl cached result time to live
+   * @param source upstream factory, called once per ttl
+   * @return shared lookup, late subscribers receive last result if it is younger than ttl
+   */
+  Flux<Result> get(Duration ttl, Supplier<Flux<Result>> source) {
+    return lookups.computeIfAbsent(ttl, k -> source.get().replay(1, ttl).refCount());
+  }
+
+  /** Forget shared lookups, upstreams of active subscribers are not stopped */
+  void clear() {
+    lookups.clear();
+  }
+
+  /**
+   * Request result, error is delivered to fallback of each subscriber
+   *
+   * @param names instances names
+   * @param error request error
+   */
+  record Result(@Nullable Set<String> names, @Nullable Throwable error) {}
+}
@@ -0,0 +1,234 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import org.mtbo.lcloud.logging.FileLineLogger;
+
+/**
+ * Last good membership per service, kept in memory-mapped file. Owned by one discovery, files are
+ * not meant to be shared between discoveries or processes.
+ *
+ * <p>Layout: magic, format version, payload length, payload CRC32, then entries of service name,
+ * last success time in epoch milliseconds and instances names. Strings are UTF-8 prefixed by short
+ * length. Torn or foreign file fails CRC check and is ignored.
+ *
+ * <p>Mapped pages are not forced to disk, they survive process crash but not OS crash. File is
+ * rewritten only when names change, time of unchanged membership is stored on close, so after crash
+ * snapshot looks older than it is, never fresher.
+ */
+final class SnapshotFile implements AutoCloseable {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(SnapshotFile.class.getName());
+
+  private static final int MAGIC = 0x4c43534e;
+
+  private static final int FORMAT = 1;
+
+  private static final int HEADER = 16;
+
+  private final Path path;
+
+  private final Map<String, Entry> entries;
+
+  @Nullable private MappedByteBuffer buffer;
+
+  /** Some entry time is newer than in file */
+  private boolean dirty;
+
+  private boolean closed;
+
+  /**
+   * Read snapshot file
+   *
+   * @param path file path
+   */
+  SnapshotFile(Path path) {
+    this.path = path;
+    this.entries = read(path);
+  }
+
+  /**
+   * Last good membership of the service
+   *
+   * @param service service name
+   * @return entry, empty if never stored
+   */
+  synchronized Optional<Entry> get(String service) {
+    return Optional.ofNullable(entries.get(service));
+  }
+
+  /**
+   * Store membership of the service, rewrite file if names changed
+   *
+   * @param service service name
+   * @param entry membership
+   */
+  synchronized void put(String service, Entry entry) {
+    if (closed) {
+      return;
+    }
+
+    var previous = entries.put(service, entry);
+    if (previous != null && previous.names().equals(entry.names())) {
+      dirty = true;
+      return;
+    }
+
+    store();
+  }
+
+  /** Store pending entry times and release mapping, it is unmapped when collected */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+
+    if (dirty) {
+      store();
+    }
+
+    closed = true;
+    buffer = null;
+  }
+
+  private void store() {
+    try {
+      write();
+      dirty = false;
+    } catch (IOException | RuntimeException e) {
+      logger.finer("Snapshot write failed: " + e.getMessage(), e);
+      buffer = null;
+    }
+  }
+
+  private void write() throws IOException {
+    var payload = ByteBuffer.allocate(size());
+    payload.putInt(entries.size());
+    entries.forEach(
+        (service, entry) -> {
+          putString(payload, service);
+          payload.putLong(entry.asOf().toEpochMilli());
+          payload.putInt(entry.names().size());
+          entry.names().forEach(name -> putString(payload, name));
+        });
+    payload.flip();
+
+    var crc = new CRC32();
+    crc.update(payload.duplicate());
+
+    var length = HEADER + payload.remaining();
+    if (buffer == null || buffer.capacity() < length) {
+      try (var channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(4096, length * 2L));
+      }
+    }
+
+    buffer.clear();
+    buffer.putInt(0);
+    buffer.putInt(FORMAT);
+    buffer.putInt(payload.remaining());
+    buffer.putInt((int) crc.getValue());
+    buffer.put(payload);
+    buffer.putInt(0, MAGIC);
+  }
+
+  private int size() {
+    var size = Integer.BYTES;
+    for (var entry : entries.entrySet()) {
+      size += stringSize(entry.getKey()) + Long.BYTES + Integer.BYTES;
+      for (var name : entry.getValue().names()) {
+        size += stringSize(name);
+      }
+    }
+    return size;
+  }
+
+  private static Map<String, Entry> read(Path path) {
+    var entries = new HashMap<String, Entry>();
+
+    if (!Files.exists(path)) {
+      return entries;
+    }
+
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+        return entries;
+      }
+
+      var length = buffer.getInt();
+      var checksum = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        return entries;
+      }
+
+      var payload = buffer.slice(HEADER, length);
+      var crc = new CRC32();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        return entries;
+      }
+
+      var services = payload.getInt();
+      for (int i = 0; i < services; i++) {
+        var service = getString(payload);
+        var asOf = Instant.ofEpochMilli(payload.getLong());
+        var count = payload.getInt();
+        var names = new HashSet<String>(count * 2);
+        for (int j = 0; j < count; j++) {
+          names.add(getString(payload));
+        }
+        entries.put(service, new Entry(Set.copyOf(names), asOf));
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.finer("Snapshot read failed: " + e.getMessage(), e);
+      entries.clear();
+    }
+
+    return entries;
+  }
+
+  private static int stringSize(String value) {
+    return Short.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static void putString(ByteBuffer buffer, String value) {
+    var bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Stored membership
+   *
+   * @param names instances names
+   * @param asOf time of successful lookup
+   */
+  record Entry(Set<String> names, Instant asOf) {}
+}
@@ -0,0 +1,279 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
+import javax.annotation.Nullable;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cloud discovery built directly on R2DBC SPI, without Spring Data. Same table, schema and
+ * statements as {@link SqlDiscovery}, so both can serve one cluster.
+ *
+ * <p>Statements text is prepared once, parameters are bound by index and names are read from the
+ * first column without intermediate row maps.
+ */
+public class SpiDiscovery implements AutoCloseable {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(SpiDiscovery.class.getName());
+
+  final Config config;
+
+  private final ConnectionFactory connectionFactory;
+
+  @Nullable private final Pooling pool;
+
+  private final Dialect dialect;
+
+  private final Queries queries;
+
+  private final Double interval;
+
+  /**
+   * Constructor with parameters
+   *
+   * @param config configuration
+   */
+  public SpiDiscovery(Config config) {
+    this.config = config;
+
+    var factory = ConnectionFactories.get(config.connectionString);
+
+    if (config.pool.enabled()) {
+      pool = new Pooling(factory, config.pool);
+      connectionFactory = pool.factory();
+    } else {
+      pool = null;
+      connectionFactory = factory;
+    }
+
+    this.dialect = Dialect.of(factory.getMetadata());
+    this.queries = new Queries(dialect);
+    this.interval = config.updateInterval.toMillis() / 1_000.0;
+  }
+
+  /**
+   * Creates instances table if not exists. Warms up connection pool if pooling is enabled.
+   *
+   * @return True in case of OK
+   */
+  public Mono<Boolean> initialize() {
+    return (pool != null ? pool.warmup() : Mono.just(0))
+        .then(
+            Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> SpiSchema.create(connection, dialect, config.storage),
+                Connection::close));
+  }
+
+  /**
+   * Mono for registering self-instance
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return true after half of update interval
+   */
+  public Mono<Boolean> ping(Function<Throwable, Mono<Boolean>> fallback) {
+    return update()
+        .onErrorResume(fallback)
+        .then(Mono.delay(config.updateInterval.dividedBy(2)).then(Mono.just(true)));
+  }
+
+  /**
+   * Flux registering self-instance and checking instances of the service by one statement every
+   * half of update interval
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return flux of service instances names set, emitted on change
+   */
+  public Flux<Set<String>> heartbeat(Function<Throwable, Mono<Set<String>>> fallback) {
+    return names(queries.heartbeat)
+        .onErrorResume(fallback)
+        .concatWith(Mono.delay(config.updateInterval.dividedBy(2)).then(Mono.empty()))
+        .repeat()
+        .distinctUntilChanged();
+  }
+
+  /**
+   * Flux for checking instances every update interval
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return set of instances names flux
+   */
+  public Flux<Set<String>> lookup(Function<Throwable, Mono<Set<String>>> fallback) {
+    return names(queries.lookup)
+        .onErrorResume(fallback)
+        .flatMap(strings -> Mono.delay(config.updateInterval).then(Mono.just(strings)))
+        .repeat();
+  }
+
+  /**
+   * Clean self. Use on service shutdown.
+   *
+   * @return count of cleaned instances
+   */
+  public Mono<Long> clean() {
+    return rowsUpdated(queries.clean);
+  }
+
+  /**
+   * Clean all out-of-time instances. Use on service start.
+   *
+   * @param fallback error handler
+   * @return count of cleaned instances
+   */
+  public Mono<Long> cleanAll(Function<Throwable, Mono<Long>> fallback) {
+    return rowsUpdated(queries.cleanAll).onErrorResume(fallback);
+  }
+
+  /**
+   * Register self-instance or refresh its last ping time in one atomic statement
+   *
+   * @return true if instance row is inserted or updated
+   */
+  public Mono<Boolean> update() {
+    return rowsUpdated(queries.upsert)
+        .map(
+            aLong -> {
+              if (logger.isLoggable(Level.FINER)) {
+                logger.finer(
+                    String.format(
+                        "Ping upsert: %1$d %2$s %3$s",
+                        aLong, config.serviceName, config.instanceName));
+              }
+
+              return aLong == 1;
+            });
+  }
+
+  /** Release pooled connections. Discovery can not be used after close. */
+  @Override
+  public void close() {
+    if (pool != null) {
+      pool.dispose();
+    }
+  }
+
+  private Mono<Set<String>> names(NamedSql sql) {
+    return Mono.usingWhen(
+        connectionFactory.create(),
+        connection ->
+            Flux.from(bind(connection.createStatement(sql.sql()), sql).execute())
+                .flatMap(result -> result.map((row, metadata) -> row.get(0, String.class)))
+                .collect(HashSet::new, Set::add),
+        Connection::close);
+  }
+
+  private Mono<Long> rowsUpdated(NamedSql sql) {
+    return Mono.usingWhen(
+        connectionFactory.create(),
+        connection ->
+            Flux.from(bind(connection.createStatement(sql.sql()), sql).execute())
+                .flatMap(Result::getRowsUpdated)
+                .reduce(0L, Long::sum),
+        Connection::close);
+  }
+
+  private Statement bind(Statement statement, NamedSql sql) {
+    var names = sql.names();
+    for (int i = 0; i < names.size(); i++) {
+      switch (names.get(i)) {
+        case "id" -> statement.bind(i, UUID.randomUUID());
+        case "service" -> statement.bind(i, config.serviceName);
+        case "name" -> statement.bind(i, config.instanceName);
+        case "interval" -> statement.bind(i, interval);
+        default -> throw new IllegalArgumentException("Unknown parameter: " + names.get(i));
+      }
+    }
+
+    return statement;
+  }
+
+  /** Statements of the dialect, parsed once */
+  private static final class Queries {
+
+    final NamedSql upsert;
+
+    final NamedSql heartbeat;
+
+    final NamedSql lookup;
+
+    final NamedSql clean;
+
+    final NamedSql cleanAll;
+
+    Queries(Dialect dialect) {
+      this.upsert = NamedSql.indexed(dialect.upsert);
+      this.heartbeat = NamedSql.indexed(dialect.heartbeat());
+      this.lookup =
+          NamedSql.indexed(
+              "select name from instances where service = :service AND " + dialect.alive());
+      this.clean =
+          NamedSql.indexed(
+              "delete from instances where service = :service AND name = :name AND "
+                  + dialect.expired());
+      this.cleanAll =
+          NamedSql.indexed(
+              "delete from instances where service = :service AND " + dialect.expired());
+    }
+  }
+
+  /**
+   * r2dbc spi discovery configuration
+   *
+   * @param connectionString db connection string
+   * @param serviceName service name
+   * @param instanceName instance name
+   * @param updateInterval update interval
+   * @param pool connection pool configuration
+   * @param storage instances table storage profile
+   */
+  public record Config(
+      String connectionString,
+      String serviceName,
+      String instanceName,
+      Duration updateInterval,
+      SqlDiscovery.Pool pool,
+      SqlDiscovery.Storage storage) {
+
+    /**
+     * Configuration without connection pooling
+     *
+     * @param connectionString db connection string
+     * @param serviceName service name
+     * @param instanceName instance name
+     * @param updateInterval update interval
+     */
+    public Config(
+        String connectionString, String serviceName, String instanceName, Duration updateInterval) {
+      this(
+          connectionString,
+          serviceName,
+          instanceName,
+          updateInterval,
+          SqlDiscovery.Pool.DISABLED,
+          SqlDiscovery.Storage.DEFAULT);
+    }
+
+    /**
+     * Copy with another pool configuration
+     *
+     * @param pool connection pool configuration
+     * @return new config
+     */
+    public Config withPool(SqlDiscovery.Pool pool) {
+      return new Config(connectionString, serviceName, instanceName, updateInterval, pool, storage);
+    }
+  }
+}
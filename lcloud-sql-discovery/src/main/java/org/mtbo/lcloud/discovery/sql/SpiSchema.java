@@ -0,0 +1,133 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** R2DBC SPI executor of {@link Migrations}, same rules as {@link Schema} */
+final class SpiSchema {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(SpiSchema.class.getName());
+
+  private SpiSchema() {}
+
+  /**
+   * Apply migrations newer than stored schema version, then switch storage profile if it differs
+   * from stored one
+   *
+   * @param connection connection in auto-commit mode
+   * @param dialect database dialect
+   * @param storage storage profile
+   * @return true if schema is current
+   */
+  static Mono<Boolean> create(
+      Connection connection, Dialect dialect, SqlDiscovery.Storage storage) {
+    return state(connection)
+        .flatMap(
+            state ->
+                (state.version() >= Migrations.VERSION
+                        ? Mono.just(true)
+                        : migrate(connection, dialect, state.version()))
+                    .flatMap(
+                        ok ->
+                            ok
+                                    && !dialect.storage(storage).isEmpty()
+                                    && !storage.name().equals(state.storage())
+                                ? Flux.fromIterable(dialect.storage(storage))
+                                    .concatMap(sql -> execute(connection, sql, false))
+                                    .all(done -> done)
+                                    .flatMap(
+                                        done ->
+                                            done
+                                                ? update(
+                                                    connection,
+                                                    "update instances_schema set storage = $1 where id = 1",
+                                                    storage.name())
+                                                : Mono.just(false))
+                                : Mono.just(ok)));
+  }
+
+  private static Mono<Migrations.State> state(Connection connection) {
+    return Flux.from(
+            connection
+                .createStatement("select version, storage from instances_schema where id = 1")
+                .execute())
+        .flatMap(
+            result ->
+                result.map(
+                    (row, metadata) ->
+                        new Migrations.State(row.get(0, Integer.class), row.get(1, String.class))))
+        .next()
+        .defaultIfEmpty(new Migrations.State(0, null))
+        .onErrorReturn(new Migrations.State(0, null));
+  }
+
+  private static Mono<Boolean> migrate(Connection connection, Dialect dialect, int current) {
+    return execute(connection, Migrations.VERSION_TABLE, false)
+        .thenMany(Flux.fromIterable(Migrations.of(dialect)))
+        .filter(migration -> migration.version() > current)
+        .concatMap(
+            migration ->
+                Flux.fromIterable(migration.statements())
+                    .concatMap(
+                        statement -> execute(connection, statement.sql(), statement.optional()))
+                    .all(ok -> ok)
+                    .flatMap(
+                        ok ->
+                            ok
+                                ? store(connection, migration.version()).thenReturn(true)
+                                : Mono.just(false)))
+        .takeUntil(ok -> !ok)
+        .all(ok -> ok);
+  }
+
+  private static Mono<Boolean> execute(Connection connection, String sql, boolean optional) {
+    return Flux.from(connection.createStatement(sql).execute())
+        .flatMap(Result::getRowsUpdated)
+        .then(Mono.just(true))
+        .onErrorResume(
+            throwable -> {
+              logger.finer("Schema statement failed: " + throwable.getMessage(), throwable);
+              return Mono.just(optional);
+            });
+  }
+
+  private static Mono<Void> store(Connection connection, int version) {
+    return update(
+            connection,
+            "update instances_schema set version = $1 where id = 1 and version < $2",
+            version,
+            version)
+        .filter(updated -> !updated)
+        .flatMap(
+            updated ->
+                update(
+                    connection,
+                    "insert into instances_schema (id, version) values (1, $1)",
+                    version))
+        .then();
+  }
+
+  private static Mono<Boolean> update(Connection connection, String sql, Object... values) {
+    return Mono.defer(
+            () -> {
+              var statement = connection.createStatement(sql);
+              for (int i = 0; i < values.length; i++) {
+                statement.bind(i, values[i]);
+              }
+              return Flux.from(statement.execute())
+                  .flatMap(Result::getRowsUpdated)
+                  .reduce(0L, Long::sum)
+                  .map(count -> count > 0);
+            })
+        .onErrorResume(
+            throwable -> {
+              logger.finer("Schema update failed: " + throwable.getMessage(), throwable);
+              return Mono.just(false);
+            });
+  }
+}
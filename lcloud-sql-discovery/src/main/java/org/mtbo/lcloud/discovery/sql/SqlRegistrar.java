@@ -0,0 +1,186 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Registers many (service, instance) pairs from one process. All registrations are refreshed by one
+ * multi-row statement per ping, registrations can be added and removed while pinging.
+ */
+public class SqlRegistrar implements AutoCloseable {
+
+  static final FileLineLogger logger = FileLineLogger.getLogger(SqlRegistrar.class.getName());
+
+  final Config config;
+
+  final Connections connections;
+
+  private final Map<Registration, UUID> registrations = new LinkedHashMap<>();
+
+  private volatile Batch batch = new Batch(new UUID[0], new String[0], new String[0]);
+
+  /**
+   * Constructor with parameters
+   *
+   * @param config configuration
+   */
+  public SqlRegistrar(Config config) {
+    this.config = config;
+    this.connections = new Connections(config.connectionString, config.pool);
+  }
+
+  /**
+   * Creates instances table if not exists. Warms up connection pool if pooling is enabled.
+   *
+   * @return True in case of OK
+   */
+  public Mono<Boolean> initialize() {
+    return connections
+        .warmup()
+        .then(
+            Mono.defer(
+                () ->
+                    Schema.create(
+                        connections.template, connections.dialect, SqlDiscovery.Storage.DEFAULT)));
+  }
+
+  /**
+   * Add registration, refreshed since next ping
+   *
+   * @param serviceName service name
+   * @param instanceName instance name
+   * @return false if already registered
+   */
+  public boolean register(String serviceName, String instanceName) {
+    synchronized (registrations) {
+      if (registrations.putIfAbsent(new Registration(serviceName, instanceName), UUID.randomUUID())
+          != null) {
+        return false;
+      }
+
+      rebuild();
+      return true;
+    }
+  }
+
+  /**
+   * Remove registration. Instance row is not deleted, it expires after update interval.
+   *
+   * @param serviceName service name
+   * @param instanceName instance name
+   * @return false if not registered
+   */
+  public boolean unregister(String serviceName, String instanceName) {
+    synchronized (registrations) {
+      if (registrations.remove(new Registration(serviceName, instanceName)) == null) {
+        return false;
+      }
+
+      rebuild();
+      return true;
+    }
+  }
+
+  /**
+   * Registrations count
+   *
+   * @return count of registered instances
+   */
+  public int size() {
+    return batch.ids.length;
+  }
+
+  /**
+   * Mono refreshing all registrations, repeat it for continuous registering
+   *
+   * @param fallback error fallback, can be used for logging. Provide Mono.empty() to retry
+   * @return count of refreshed instances
+   */
+  public Mono<Long> ping(Function<Throwable, Mono<Long>> fallback) {
+    return Mono.defer(() -> update(batch))
+        .onErrorResume(fallback)
+        .defaultIfEmpty(0L)
+        .flatMap(count -> Mono.delay(config.updateInterval.dividedBy(2)).thenReturn(count));
+  }
+
+  /** Release pooled connections. Registrar can not be used after close. */
+  @Override
+  public void close() {
+    connections.close();
+  }
+
+  private Mono<Long> update(Batch batch) {
+    if (batch.ids.length == 0) {
+      return Mono.just(0L);
+    }
+
+    return connections
+        .template
+        .getDatabaseClient()
+        .sql(connections.dialect.upsertAll)
+        .bind("ids", batch.ids)
+        .bind("services", batch.services)
+        .bind("names", batch.names)
+        .bind("interval", config.updateInterval.toMillis() / 1_000.0)
+        .fetch()
+        .rowsUpdated()
+        .publishOn(Schedulers.boundedElastic())
+        .doOnNext(
+            count -> {
+              if (logger.isLoggable(Level.FINER)) {
+                logger.finer(String.format("Ping upsert all: %1$d", count));
+              }
+            });
+  }
+
+  private void rebuild() {
+    var size = registrations.size();
+    var ids = new UUID[size];
+    var services = new String[size];
+    var names = new String[size];
+
+    var i = 0;
+    for (var entry : registrations.entrySet()) {
+      ids[i] = entry.getValue();
+      services[i] = entry.getKey().serviceName();
+      names[i] = entry.getKey().instanceName();
+      i++;
+    }
+
+    batch = new Batch(ids, services, names);
+  }
+
+  private record Registration(String serviceName, String instanceName) {}
+
+  /** Immutable parallel arrays bound to batch upsert */
+  private record Batch(UUID[] ids, String[] services, String[] names) {}
+
+  /**
+   * sql registrar configuration
+   *
+   * @param connectionString db connection string
+   * @param updateInterval update interval
+   * @param pool connection pool configuration
+   */
+  public record Config(String connectionString, Duration updateInterval, SqlDiscovery.Pool pool) {
+
+    /**
+     * Configuration without connection pooling
+     *
+     * @param connectionString db connection string
+     * @param updateInterval update interval
+     */
+    public Config(String connectionString, Duration updateInterval) {
+      this(connectionString, updateInterval, SqlDiscovery.Pool.DISABLED);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.sql;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Membership state of one {@link SqlDiscovery#watch} subscriber.
+ *
+ * <p>Every insert or revive of an instance row advances its change sequence, so joins are fetched
+ * incrementally by sequence. Sequence values are taken before commit, so last {@link #WINDOW}
+ * values are read again, joins committed out of order are not lost. Leaves do not touch the
+ * sequence. Every member is expected to expire when its last ping gets older than interval, only
+ * members past that deadline are checked again, absent ones have left.
+ */
+final class Watcher {
+
+  /** Count of sequence values below the highest seen one which are read again on every poll */
+  static final long WINDOW = 256;
+
+  private final String columns;
+
+  private final String alive;
+
+  private final String serviceName;
+
+  private final double interval;
+
+  /** Members by name, with local {@link System#nanoTime()} deadline of their expiry check */
+  private final Map<String, Long> known = new HashMap<>();
+
+  private long sequence;
+
+  private boolean initialized;
+
+  /**
+   * Construct empty state
+   *
+   * @param serviceName watched service
+   * @param interval expiry interval, seconds
+   * @param dialect database dialect
+   */
+  Watcher(String serviceName, double interval, Dialect dialect) {
+    this.serviceName = serviceName;
+    this.interval = interval;
+    this.columns =
+        "select name, seq, last, cast("
+            + dialect.threshold
+            + " as timestamp with time zone) as threshold from instances";
+    this.alive = " where service = :service AND " + dialect.alive();
+  }
+
+  /**
+   * Request changes since previous poll
+   *
+   * @param template connection
+   * @return events, snapshot on first poll
+   */
+  Flux<MembershipEvent> poll(R2dbcEntityTemplate template) {
+    if (!initialized) {
+      return rows(template, columns + alive, Map.of())
+          .<MembershipEvent>map(
+              rows -> {
+                known.clear();
+                rows.forEach(row -> accept(row, null));
+                initialized = true;
+                return new MembershipEvent.Snapshot(Set.copyOf(known.keySet()));
+              })
+          .flux();
+    }
+
+    var events = new ArrayList<MembershipEvent>();
+
+    return rows(template, columns + alive + " AND seq > :seq", Map.of("seq", sequence - WINDOW))
+        .doOnNext(rows -> rows.forEach(row -> accept(row, events)))
+        .then(Mono.defer(() -> expire(template, events)))
+        .thenMany(Flux.fromIterable(events));
+  }
+
+  /** Forget state, next poll emits snapshot */
+  void reset() {
+    initialized = false;
+  }
+
+  private Mono<Void> expire(R2dbcEntityTemplate template, List<MembershipEvent> events) {
+    var now = System.nanoTime();
+
+    var due = new HashSet<String>();
+    known.forEach(
+        (name, deadline) -> {
+          if (deadline - now <= 0) {
+            due.add(name);
+          }
+        });
+
+    if (due.isEmpty()) {
+      return Mono.empty();
+    }
+
+    return rows(template, columns + alive + " AND name in (:names)", Map.of("names", due))
+        .doOnNext(
+            rows -> {
+              rows.forEach(
+                  row -> {
+                    due.remove(row.name());
+                    accept(row, events);
+                  });
+
+              for (var name : due) {
+                known.remove(name);
+                events.add(new MembershipEvent.Left(name));
+              }
+            })
+        .then();
+  }
+
+  private void accept(Row row, @Nullable List<MembershipEvent> events) {
+    if (row.seq() != null) {
+      sequence = Math.max(sequence, row.seq());
+    }
+
+    var deadline = System.nanoTime() + row.left().toNanos();
+
+    if (known.put(row.name(), deadline) == null && events != null) {
+      events.add(new MembershipEvent.Joined(row.name()));
+    }
+  }
+
+  private Mono<List<Row>> rows(R2dbcEntityTemplate template, String sql, Map<String, ?> bindings) {
+    var spec =
+        template
+            .getDatabaseClient()
+            .sql(sql)
+            .bind("service", serviceName)
+            .bind("interval", interval);
+
+    for (var binding : bindings.entrySet()) {
+      spec = spec.bind(binding.getKey(), binding.getValue());
+    }
+
+    return spec.map(
+            (row, metadata) ->
+                new Row(
+                    row.get("name", String.class),
+                    row.get("seq", Long.class),
+                    Duration.between(
+                        row.get("threshold", OffsetDateTime.class),
+                        row.get("last", OffsetDateTime.class))))
+        .all()
+        .collectList();
+  }
+
+  /**
+   * Alive instance row
+   *
+   * @param name instance name
+   * @param seq change sequence
+   * @param left time left until instance expires, by database clock
+   */
+  private record Row(String name, @Nullable Long seq, Duration left) {}
+}
@@ -0,0 +1,250 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mtbo.lcloud.discovery.sql.JdbcDiscovery;
+import org.mtbo.lcloud.discovery.sql.SpiDiscovery;
+import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.publisher.Mono;
+
+public class JdbcDiscoveryTest {
+
+  public static final String SERVICE_NAME = "service";
+  public static final String INSTANCE_NAME = "first";
+  static final String url = "jdbc:h2:mem:jdbc;DB_CLOSE_DELAY=-1";
+  static final String connectionString =
+      "r2dbc:h2:mem:///jdbc?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+  private static final Duration interval = Duration.ofSeconds(1);
+
+  static {
+    FileLineLogger.init(JdbcDiscoveryTest.class);
+  }
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    try (var connection = DriverManager.getConnection(url);
+        var statement = connection.createStatement()) {
+      statement.execute("drop table if exists instances");
+      statement.execute("drop table if exists instances_schema");
+    }
+  }
+
+  @Test
+  public void testPingAndLookup() throws SQLException {
+
+    try (final var discovery =
+        new JdbcDiscovery(new JdbcDiscovery.Config(url, SERVICE_NAME, INSTANCE_NAME, interval))) {
+
+      assertTrue(discovery.initialize());
+      assertTrue(discovery.initialize());
+      assertTrue(discovery.ping());
+      assertTrue(discovery.ping());
+      assertEquals(Set.of(INSTANCE_NAME), discovery.lookup());
+      assertEquals(0, discovery.clean());
+    }
+  }
+
+  @Test
+  public void testSharesTableWithR2dbc() throws SQLException {
+
+    try (final var discovery =
+            new JdbcDiscovery(
+                new JdbcDiscovery.Config(url, SERVICE_NAME, INSTANCE_NAME, interval));
+        final var other =
+            new SqlDiscovery(
+                new SqlDiscovery.Config(connectionString, SERVICE_NAME, "other", interval))) {
+
+      assertTrue(discovery.initialize());
+      assertEquals(Boolean.TRUE, other.initialize().block());
+      assertTrue(discovery.ping());
+
+      assertEquals(Set.of(INSTANCE_NAME, "other"), other.heartbeat(Mono::error).blockFirst());
+      assertEquals(Set.of(INSTANCE_NAME, "other"), discovery.lookup());
+    }
+  }
+
+  @Test
+  public void testStart() throws Exception {
+
+    final var lookups = new ArrayBlockingQueue<Set<String>>(16);
+    final var errors = new ArrayBlockingQueue<Exception>(16);
+
+    try (final var discovery =
+        new JdbcDiscovery(new JdbcDiscovery.Config(url, SERVICE_NAME, INSTANCE_NAME, interval))) {
+
+      assertTrue(discovery.initialize());
+
+      try (final var ignored = discovery.start(lookups::offer, errors::offer)) {
+        assertEquals(Set.of(INSTANCE_NAME), lookups.poll(10, TimeUnit.SECONDS));
+      }
+
+      assertTrue(errors.isEmpty());
+    }
+  }
+
+  @Test
+  public void testStartSurvivesRuntimeException() throws Exception {
+
+    final var errors = new ArrayBlockingQueue<Exception>(16);
+
+    try (final var discovery =
+        new JdbcDiscovery(new JdbcDiscovery.Config(url, SERVICE_NAME, INSTANCE_NAME, interval))) {
+
+      assertTrue(discovery.initialize());
+
+      try (final var running =
+          discovery.start(
+              names -> {
+                throw new IllegalStateException("lookup consumer failed");
+              },
+              errors::offer)) {
+
+        assertInstanceOf(IllegalStateException.class, errors.poll(10, TimeUnit.SECONDS));
+        assertTrue(running.thread().isAlive());
+      }
+    }
+  }
+
+  @Test
+  public void testCleanAll() throws SQLException {
+
+    try (final var discovery =
+        new JdbcDiscovery(new JdbcDiscovery.Config(url, SERVICE_NAME, INSTANCE_NAME, interval))) {
+
+      assertTrue(discovery.initialize());
+
+      try (var connection = DriverManager.getConnection(url);
+          var statement = connection.createStatement()) {
+        statement.execute(
+            "insert into instances (id, service, name, last) values (random_uuid(), 'service', 'expired', now() - interval '1' hour)");
+      }
+
+      assertEquals(1, discovery.cleanAll());
+      assertEquals(Set.of(), discovery.lookup());
+    }
+  }
+
+  @Test
+  public void testStorageProfiles() throws SQLException {
+    assertProfilesAgree(url, connectionString, null);
+  }
+
+  @Test
+  public void testStorageProfilesOnPostgres() throws SQLException {
+
+    final var postgres = System.getenv("LCLOUD_POSTGRES_URL");
+    final var postgresJdbc = System.getenv("LCLOUD_POSTGRES_JDBC_URL");
+
+    assumeTrue(
+        postgres != null && postgresJdbc != null,
+        "LCLOUD_POSTGRES_URL or LCLOUD_POSTGRES_JDBC_URL is not set");
+
+    assertProfilesAgree(postgresJdbc, postgres, null);
+
+    // profile is applied but can not be recorded, so schema is not current
+    assertProfilesAgree(
+        postgresJdbc,
+        postgres,
+        "alter table instances_schema add constraint unrecorded_logged"
+            + " check (storage <> 'LOGGED') not valid");
+  }
+
+  /**
+   * Every runner switches every stored profile to every requested one with same result, setup
+   * statement, if not null, runs after stored profile is applied
+   */
+  private static void assertProfilesAgree(String jdbcUrl, String r2dbcUrl, String setup)
+      throws SQLException {
+    final Map<String, Initializer> runners =
+        Map.of(
+            "jdbc",
+            storage -> {
+              try (var discovery =
+                  new JdbcDiscovery(
+                      new JdbcDiscovery.Config(
+                          jdbcUrl, SERVICE_NAME, INSTANCE_NAME, interval, storage))) {
+                return discovery.initialize();
+              }
+            },
+            "r2dbc",
+            storage -> {
+              try (var discovery =
+                  new SqlDiscovery(
+                      new SqlDiscovery.Config(r2dbcUrl, SERVICE_NAME, INSTANCE_NAME, interval)
+                          .withStorage(storage))) {
+                return Boolean.TRUE.equals(discovery.initialize().block());
+              }
+            },
+            "spi",
+            storage -> {
+              try (var discovery =
+                  new SpiDiscovery(
+                      new SpiDiscovery.Config(
+                          r2dbcUrl,
+                          SERVICE_NAME,
+                          INSTANCE_NAME,
+                          interval,
+                          SqlDiscovery.Pool.DISABLED,
+                          storage))) {
+                return Boolean.TRUE.equals(discovery.initialize().block());
+              }
+            });
+
+    for (var stored : SqlDiscovery.Storage.values()) {
+      for (var requested : SqlDiscovery.Storage.values()) {
+        var outcomes = new ArrayList<List<Object>>();
+
+        for (var runner : runners.entrySet()) {
+          drop(jdbcUrl);
+          assertTrue(runners.get("r2dbc").initialize(stored));
+          if (setup != null) {
+            execute(jdbcUrl, setup);
+          }
+
+          var ok = runner.getValue().initialize(requested);
+          outcomes.add(List.of(ok, String.valueOf(storage(jdbcUrl))));
+        }
+
+        assertEquals(1, Set.copyOf(outcomes).size(), stored + " -> " + requested + ": " + outcomes);
+      }
+    }
+  }
+
+  private static void drop(String jdbcUrl) throws SQLException {
+    execute(jdbcUrl, "drop table if exists instances");
+    execute(jdbcUrl, "drop table if exists instances_schema");
+  }
+
+  private static void execute(String jdbcUrl, String sql) throws SQLException {
+    try (var connection = DriverManager.getConnection(jdbcUrl);
+        var statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private static String storage(String jdbcUrl) throws SQLException {
+    try (var connection = DriverManager.getConnection(jdbcUrl);
+        var statement = connection.createStatement();
+        var resultSet =
+            statement.executeQuery("select storage from instances_schema where id = 1")) {
+      return resultSet.next() ? resultSet.getString("storage") : null;
+    }
+  }
+
+  private interface Initializer {
+    boolean initialize(SqlDiscovery.Storage storage) throws SQLException;
+  }
+}
@@ -0,0 +1,93 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.r2dbc.spi.ConnectionFactories;
+import java.time.Duration;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mtbo.lcloud.discovery.sql.SpiDiscovery;
+import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Mono;
+
+public class SpiDiscoveryTest {
+
+  public static final String SERVICE_NAME = "service";
+  public static final String INSTANCE_NAME = "first";
+  static final String connectionString =
+      "r2dbc:h2:mem:///spi?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+  private static final Duration interval = Duration.ofSeconds(1);
+
+  static {
+    FileLineLogger.init(SpiDiscoveryTest.class);
+  }
+
+  @BeforeEach
+  void setUp() {
+    var databaseClient =
+        new R2dbcEntityTemplate(ConnectionFactories.get(connectionString)).getDatabaseClient();
+    databaseClient.sql("drop table if exists instances").then().block();
+    databaseClient.sql("drop table if exists instances_schema").then().block();
+  }
+
+  @Test
+  public void testPingAndLookup() {
+
+    try (final var discovery =
+        new SpiDiscovery(
+            new SpiDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval))) {
+
+      assertEquals(Boolean.TRUE, discovery.initialize().block());
+      assertEquals(Boolean.TRUE, discovery.initialize().block());
+      assertEquals(Boolean.TRUE, discovery.update().block());
+      assertEquals(Boolean.TRUE, discovery.update().block());
+      assertEquals(Set.of(INSTANCE_NAME), discovery.lookup(Mono::error).blockFirst());
+      assertEquals(Set.of(INSTANCE_NAME), discovery.heartbeat(Mono::error).blockFirst());
+      assertEquals(0, discovery.clean().block());
+    }
+  }
+
+  @Test
+  public void testSharesTableWithSpring() {
+
+    try (final var discovery =
+            new SpiDiscovery(
+                new SpiDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval)
+                    .withPool(SqlDiscovery.Pool.of(1, 2, Duration.ofMinutes(1))));
+        final var other =
+            new SqlDiscovery(
+                new SqlDiscovery.Config(connectionString, SERVICE_NAME, "other", interval))) {
+
+      assertEquals(Boolean.TRUE, discovery.initialize().block());
+      assertEquals(Boolean.TRUE, other.initialize().block());
+      assertEquals(Boolean.TRUE, discovery.update().block());
+
+      assertEquals(Set.of(INSTANCE_NAME, "other"), other.heartbeat(Mono::error).blockFirst());
+      assertEquals(Set.of(INSTANCE_NAME, "other"), discovery.heartbeat(Mono::error).blockFirst());
+    }
+  }
+
+  @Test
+  public void testCleanAll() {
+
+    try (final var discovery =
+        new SpiDiscovery(
+            new SpiDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval))) {
+
+      assertEquals(Boolean.TRUE, discovery.initialize().block());
+
+      new R2dbcEntityTemplate(ConnectionFactories.get(connectionString))
+          .getDatabaseClient()
+          .sql(
+              "insert into instances (id, service, name, last) values (random_uuid(), 'service', 'expired', now() - interval '1' hour)")
+          .then()
+          .block();
+
+      assertEquals(1, discovery.cleanAll(Mono::error).block());
+      assertEquals(Set.of(), discovery.lookup(Mono::error).blockFirst());
+    }
+  }
+}
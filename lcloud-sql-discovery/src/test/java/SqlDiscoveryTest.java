@@ -1,17 +1,32 @@
 /* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import io.r2dbc.spi.ConnectionFactories;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mtbo.lcloud.discovery.sql.AutoDisposable;
+import org.mtbo.lcloud.discovery.sql.MembershipEvent;
+import org.mtbo.lcloud.discovery.sql.ShardedSqlDiscovery;
 import org.mtbo.lcloud.discovery.sql.SqlDiscovery;
+import org.mtbo.lcloud.discovery.sql.SqlRegistrar;
 import org.mtbo.lcloud.logging.FileLineLogger;
+import org.mtbo.lcloud.metrics.SimpleMetrics;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
@@ -54,6 +69,14 @@ public class SqlDiscoveryTest {
         .as(StepVerifier::create)
         .expectNextCount(1)
         .verifyComplete();
+    template
+        .getDatabaseClient()
+        .sql("drop table if exists instances_schema")
+        .fetch()
+        .rowsUpdated()
+        .as(StepVerifier::create)
+        .expectNextCount(1)
+        .verifyComplete();
   }
 
   @Test
@@ -182,4 +205,840 @@ public class SqlDiscoveryTest {
       assertEquals(Set.of(INSTANCE_NAME), discovery.lookup(Mono::error).take(1).blockLast());
     }
   }
+
+  @Test
+  public void testPooled() {
+
+    try (final var discovery =
+        new SqlDiscovery(config.withPool(SqlDiscovery.Pool.of(2, 4, Duration.ofSeconds(1))))) {
+
+      discovery.initialize().block();
+
+      assertEquals(2, discovery.poolStatistics().orElseThrow().allocated());
+
+      discovery.ping(Mono::error).block();
+
+      assertEquals(Set.of(INSTANCE_NAME), discovery.lookup(Mono::error).take(1).blockLast());
+
+      final var statistics = discovery.poolStatistics().orElseThrow();
+      assertEquals(0, statistics.acquired());
+      assertEquals(4, statistics.maxAllocated());
+    }
+  }
+
+  @Test
+  public void testNotPooled() {
+
+    try (final var discovery = new SqlDiscovery(config)) {
+
+      discovery.initialize().block();
+
+      assertTrue(discovery.poolStatistics().isEmpty());
+    }
+  }
+
+  @Test
+  public void testRepeatedPingKeepsSingleRow() {
+
+    final var discovery = new SqlDiscovery(config);
+
+    discovery.initialize().block();
+
+    discovery.ping(Mono::error).repeat(2).blockLast();
+
+    new R2dbcEntityTemplate(ConnectionFactories.get(connectionString))
+        .getDatabaseClient()
+        .sql("select count(*) as cnt from instances")
+        .map(row -> row.get("cnt", Long.class))
+        .one()
+        .as(StepVerifier::create)
+        .expectNext(1L)
+        .verifyComplete();
+  }
+
+  @Test
+  public void testListenFallsBackToPolling() {
+
+    final var discovery =
+        new SqlDiscovery(config.withListen(SqlDiscovery.Listen.of(Duration.ofSeconds(10))));
+
+    discovery.initialize().block();
+
+    discovery.ping(Mono::error).block();
+
+    assertEquals(Set.of(INSTANCE_NAME), discovery.lookup(Mono::error).take(1).blockLast());
+  }
+
+  @Test
+  public void testListenOnPostgres() {
+
+    final var postgres = System.getenv("LCLOUD_POSTGRES_URL");
+
+    assumeTrue(postgres != null, "LCLOUD_POSTGRES_URL is not set");
+
+    final var service = "listen-test";
+
+    final var interval = quant.multipliedBy(4);
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(postgres, service, INSTANCE_NAME, interval)
+                .withListen(SqlDiscovery.Listen.of(Duration.ofMinutes(1))));
+
+    final var discoveryOther =
+        new SqlDiscovery(new SqlDiscovery.Config(postgres, service, "other", interval));
+
+    discovery.initialize().block();
+
+    discovery.ping(Mono::error).block();
+
+    final var otherPing = new AtomicReference<Disposable>();
+
+    try (final var ignored = new AutoDisposable(discovery.ping(Mono::error).repeat().subscribe())) {
+
+      // resync is far away, changes come from notifications and expiry checks only
+      discovery
+          .lookup(Mono::error)
+          .as(StepVerifier::create)
+          .expectNext(Set.of(INSTANCE_NAME))
+          .then(() -> otherPing.set(discoveryOther.ping(Mono::error).repeat().subscribe()))
+          .expectNext(Set.of(INSTANCE_NAME, "other"))
+          .then(() -> otherPing.get().dispose())
+          .expectNext(Set.of(INSTANCE_NAME))
+          .thenCancel()
+          .verify(Duration.ofSeconds(5));
+    } finally {
+      new R2dbcEntityTemplate(ConnectionFactories.get(postgres))
+          .getDatabaseClient()
+          .sql("delete from instances where service = :service")
+          .bind("service", service)
+          .then()
+          .block();
+
+      discovery.close();
+      discoveryOther.close();
+    }
+  }
+
+  @Test
+  public void testWatch() {
+
+    final var interval = quant.multipliedBy(4);
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval));
+
+    final var discoveryOther =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, "other", interval));
+
+    discovery.initialize().block();
+
+    discovery.ping(Mono::error).block();
+
+    final var otherPing = new AtomicReference<Disposable>();
+
+    try (final var ignored = new AutoDisposable(discovery.ping(Mono::error).repeat().subscribe())) {
+
+      discovery
+          .watch(Mono::error)
+          .as(StepVerifier::create)
+          .expectNext(new MembershipEvent.Snapshot(Set.of(INSTANCE_NAME)))
+          .then(() -> otherPing.set(discoveryOther.ping(Mono::error).repeat().subscribe()))
+          .expectNext(new MembershipEvent.Joined("other"))
+          .then(() -> otherPing.get().dispose())
+          .expectNext(new MembershipEvent.Left("other"))
+          .thenCancel()
+          .verify(Duration.ofSeconds(5));
+    }
+  }
+
+  @Test
+  public void testWatchLateCommitAndExpiry() {
+
+    final var interval = quant.multipliedBy(4);
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval));
+
+    discovery.initialize().block();
+
+    final var template = new R2dbcEntityTemplate(ConnectionFactories.get(connectionString));
+
+    final var seq =
+        template
+            .getDatabaseClient()
+            .sql("select nextval('instances_seq') as seq")
+            .map(row -> row.get("seq", Long.class))
+            .one()
+            .block();
+
+    assertNotNull(seq);
+
+    final Function<String, Runnable> insert =
+        values ->
+            () ->
+                template
+                    .getDatabaseClient()
+                    .sql(
+                        "insert into instances (id, service, name, last, seq) values (random_uuid(), 'service', "
+                            + values
+                            + ")")
+                    .then()
+                    .block();
+
+    try (final var ignored = new AutoDisposable(discovery.ping(Mono::error).repeat().subscribe())) {
+
+      discovery
+          .watch(Mono::error)
+          .as(StepVerifier::create)
+          .expectNext(new MembershipEvent.Snapshot(Set.of(INSTANCE_NAME)))
+          .then(insert.apply("'early', now() + interval '1' hour, " + (seq + 10)))
+          .expectNext(new MembershipEvent.Joined("early"))
+          // lower sequence value committed after higher one is still seen
+          .then(insert.apply("'late', now() + interval '1' hour, " + (seq + 5)))
+          .expectNext(new MembershipEvent.Joined("late"))
+          .then(insert.apply("'short', now() + interval '0.4' second, " + (seq + 11)))
+          .expectNext(new MembershipEvent.Joined("short"))
+          // join is seen while other member expires
+          .then(insert.apply("'third', now() + interval '1' hour, " + (seq + 12)))
+          .expectNextMatches(
+              event ->
+                  event.equals(new MembershipEvent.Joined("third"))
+                      || event.equals(new MembershipEvent.Left("short")))
+          .expectNextMatches(
+              event ->
+                  event.equals(new MembershipEvent.Joined("third"))
+                      || event.equals(new MembershipEvent.Left("short")))
+          .thenCancel()
+          .verify(Duration.ofSeconds(5));
+    } finally {
+      template
+          .getDatabaseClient()
+          .sql("delete from instances where name in ('early', 'late', 'short', 'third')")
+          .then()
+          .block();
+    }
+  }
+
+  @Test
+  public void testRegistrar() {
+
+    final var interval = quant.multipliedBy(4);
+
+    try (final var registrar =
+        new SqlRegistrar(new SqlRegistrar.Config(connectionString, interval))) {
+
+      registrar.initialize().block();
+
+      assertEquals(0, registrar.ping(Mono::error).block());
+
+      assertTrue(registrar.register(SERVICE_NAME, INSTANCE_NAME));
+      assertTrue(registrar.register(SERVICE_NAME, "other"));
+      assertTrue(registrar.register("other", INSTANCE_NAME));
+      assertFalse(registrar.register(SERVICE_NAME, "other"));
+
+      assertEquals(3, registrar.ping(Mono::error).block());
+      assertEquals(3, registrar.ping(Mono::error).block());
+
+      assertEquals(
+          Set.of(INSTANCE_NAME, "other"),
+          new SqlDiscovery(
+                  new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval))
+              .lookup(Mono::error)
+              .take(1)
+              .blockLast());
+
+      assertTrue(registrar.unregister(SERVICE_NAME, "other"));
+      assertFalse(registrar.unregister(SERVICE_NAME, "other"));
+
+      assertEquals(2, registrar.size());
+      assertEquals(2, registrar.ping(Mono::error).block());
+    }
+  }
+
+  @Test
+  public void testSharedLookup() {
+
+    final var sharedConfig =
+        new SqlDiscovery.Config(
+            connectionString, SERVICE_NAME, INSTANCE_NAME, Duration.ofSeconds(1));
+
+    final var discovery = new SqlDiscovery(sharedConfig);
+
+    discovery.initialize().block();
+
+    discovery.ping(Mono::error).block();
+
+    final var lookup = discovery.sharedLookup(Duration.ofSeconds(1), Mono::error);
+
+    try (final var ignored = new AutoDisposable(lookup.subscribe())) {
+
+      final var first = lookup.blockFirst();
+
+      final var second =
+          discovery.sharedLookup(Duration.ofSeconds(1), Mono::error).blockFirst(quant);
+
+      assertEquals(Set.of(INSTANCE_NAME), first);
+      assertSame(first, second);
+
+      // other discovery has own connections and own loop
+      try (final var other = new SqlDiscovery(sharedConfig)) {
+        discovery.ping(Mono::error).block();
+
+        final var third = other.sharedLookup(Duration.ofSeconds(1), Mono::error).blockFirst();
+
+        assertEquals(first, third);
+        assertNotSame(first, third);
+      }
+    }
+  }
+
+  @Test
+  public void testLookupAll() {
+
+    final var interval = quant.multipliedBy(4);
+
+    try (final var registrar =
+        new SqlRegistrar(new SqlRegistrar.Config(connectionString, interval))) {
+
+      registrar.initialize().block();
+
+      registrar.register(SERVICE_NAME, INSTANCE_NAME);
+      registrar.register(SERVICE_NAME, "other");
+      registrar.register("other", INSTANCE_NAME);
+      registrar.register("third", INSTANCE_NAME);
+
+      try (final var ignored =
+          new AutoDisposable(registrar.ping(Mono::error).repeat().subscribe())) {
+
+        Mono.delay(quant).block();
+
+        final var discovery =
+            new SqlDiscovery(
+                new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval));
+
+        assertEquals(
+            Map.of(
+                SERVICE_NAME,
+                Set.of(INSTANCE_NAME, "other"),
+                "other",
+                Set.of(INSTANCE_NAME),
+                "absent",
+                Set.of()),
+            discovery.lookupAll(Set.of(SERVICE_NAME, "other", "absent"), Mono::error).blockFirst());
+
+        assertEquals(
+            Set.of(SERVICE_NAME, "other", "third"),
+            discovery.lookupAll(Set.of(), Mono::error).blockFirst().keySet());
+
+        final var views = discovery.lookupAllByService(Set.of(SERVICE_NAME, "other"), Mono::error);
+
+        assertEquals(
+            Set.of(INSTANCE_NAME),
+            Flux.zip(views.service(SERVICE_NAME), views.service("other"))
+                .map(tuple -> tuple.getT2())
+                .blockFirst());
+      }
+    }
+  }
+
+  @Test
+  public void testSchemaIsVersioned() {
+
+    final var discovery = new SqlDiscovery(config);
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+
+    final var template = new R2dbcEntityTemplate(ConnectionFactories.get(connectionString));
+
+    template
+        .getDatabaseClient()
+        .sql("select version from instances_schema")
+        .map(row -> row.get("version", Integer.class))
+        .one()
+        .as(StepVerifier::create)
+        .expectNext(4)
+        .verifyComplete();
+
+    template.getDatabaseClient().sql("drop index service_last_index").fetch().rowsUpdated().block();
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+
+    template
+        .getDatabaseClient()
+        .sql(
+            "select count(*) as cnt from information_schema.indexes where index_name = 'SERVICE_LAST_INDEX'")
+        .map(row -> row.get("cnt", Long.class))
+        .one()
+        .as(StepVerifier::create)
+        .expectNext(0L)
+        .verifyComplete();
+  }
+
+  @Test
+  public void testStorageProfileIsStoredOnlyIfApplied() {
+
+    final var discovery = new SqlDiscovery(config.withStorage(SqlDiscovery.Storage.UNLOGGED));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+    assertEquals(Boolean.TRUE, discovery.ping(Mono::error).block());
+
+    final var template = new R2dbcEntityTemplate(ConnectionFactories.get(connectionString));
+
+    // H2 has no storage profiles, nothing is applied, so nothing is recorded
+    template
+        .getDatabaseClient()
+        .sql("select coalesce(storage, 'NONE') as storage from instances_schema")
+        .map(row -> row.get("storage", String.class))
+        .one()
+        .as(StepVerifier::create)
+        .expectNext("NONE")
+        .verifyComplete();
+  }
+
+  @Test
+  public void testReap() {
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(
+                    connectionString, SERVICE_NAME, INSTANCE_NAME, Duration.ofSeconds(10))
+                .withReap(new SqlDiscovery.Reap(quant, 2)));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+    assertEquals(Boolean.TRUE, discovery.ping(Mono::error).block());
+
+    final var template = new R2dbcEntityTemplate(ConnectionFactories.get(connectionString));
+
+    template
+        .getDatabaseClient()
+        .sql(
+            "insert into instances (id, service, name, last) select random_uuid(), case when x <= 5 then 'service' else 'other' end, 'expired' || x, now() - interval '1' hour from system_range(1, 8)")
+        .fetch()
+        .rowsUpdated()
+        .as(StepVerifier::create)
+        .expectNext(8L)
+        .verifyComplete();
+
+    discovery
+        .reap(Mono::error)
+        .take(4)
+        .as(StepVerifier::create)
+        .expectNext(2L, 2L, 1L, 0L)
+        .verifyComplete();
+
+    // instances of other services expire by their own interval, they are not reaped
+    template
+        .getDatabaseClient()
+        .sql("select count(*) as cnt from instances where service = 'other'")
+        .map(row -> row.get("cnt", Long.class))
+        .one()
+        .as(StepVerifier::create)
+        .expectNext(3L)
+        .verifyComplete();
+
+    template
+        .getDatabaseClient()
+        .sql("select name from instances where service = :service")
+        .bind("service", SERVICE_NAME)
+        .map(row -> row.get("name", String.class))
+        .all()
+        .as(StepVerifier::create)
+        .expectNext(INSTANCE_NAME)
+        .verifyComplete();
+  }
+
+  @Test
+  public void testHeartbeat() {
+
+    final var interval = quant.multipliedBy(4);
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval));
+    final var other =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, "other", interval));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+
+    assertEquals(Set.of(INSTANCE_NAME), discovery.heartbeat(Mono::error).blockFirst());
+
+    try (final var ignored = new AutoDisposable(other.heartbeat(Mono::error).subscribe())) {
+
+      discovery
+          .heartbeat(Mono::error)
+          .filter(names -> names.size() == 2)
+          .take(1)
+          .as(StepVerifier::create)
+          .expectNext(Set.of(INSTANCE_NAME, "other"))
+          .verifyComplete();
+    }
+  }
+
+  @Test
+  public void testMetadata() {
+
+    final var interval = quant.multipliedBy(4);
+    final var metadata = new SqlDiscovery.Metadata("10.0.0.1", 8080, "a", 2);
+    final var moved = SqlDiscovery.Metadata.of("10.0.0.2", 8081);
+
+    final var base =
+        new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval);
+    final var discovery = new SqlDiscovery(base.withMetadata(metadata));
+    final var other =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, "other", interval));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+
+    final var heartbeats = Disposables.swap();
+    heartbeats.update(discovery.heartbeat(Mono::error).subscribe());
+
+    try (final var ignored = new AutoDisposable(heartbeats);
+        final var ignored2 = new AutoDisposable(other.heartbeat(Mono::error).subscribe())) {
+
+      final var lookups =
+          discovery
+              .lookupMetadata(Mono::error)
+              .filter(map -> map.size() == 2)
+              .take(2)
+              .collectList()
+              .block();
+
+      assertNotNull(lookups);
+      assertEquals(
+          Map.of(INSTANCE_NAME, metadata, "other", SqlDiscovery.Metadata.NONE), lookups.get(0));
+      assertSame(lookups.get(0).get(INSTANCE_NAME), lookups.get(1).get(INSTANCE_NAME));
+
+      other
+          .lookupMetadata(Mono::error)
+          .mapNotNull(map -> map.get(INSTANCE_NAME))
+          .distinctUntilChanged()
+          .take(2)
+          .as(StepVerifier::create)
+          .expectNext(metadata)
+          .then(
+              () ->
+                  heartbeats.update(
+                      new SqlDiscovery(base.withMetadata(moved))
+                          .heartbeat(Mono::error)
+                          .subscribe()))
+          .expectNext(moved)
+          .verifyComplete();
+    }
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+
+    final var interval = quant.multipliedBy(4);
+    final var path = Files.createTempFile("lcloud", ".snapshot");
+    final var brokenConnectionString = "r2dbc:h2:mem:///broken";
+
+    final var base =
+        new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval);
+    final var discovery =
+        new SqlDiscovery(base.withSnapshot(SqlDiscovery.Snapshot.of(path, Duration.ofHours(1))));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+    assertEquals(Set.of(INSTANCE_NAME), discovery.heartbeat(Mono::error).blockFirst());
+
+    final var fresh = discovery.lookupMembership(Mono::error).blockFirst();
+    assertNotNull(fresh);
+    assertEquals(Set.of(INSTANCE_NAME), fresh.names());
+    assertFalse(fresh.stale());
+
+    final var copy = Files.copy(path, path.resolveSibling(path.getFileName() + ".copy"));
+
+    new SqlDiscovery(
+            new SqlDiscovery.Config(brokenConnectionString, SERVICE_NAME, INSTANCE_NAME, interval)
+                .withSnapshot(SqlDiscovery.Snapshot.of(copy, Duration.ofHours(1))))
+        .lookupMembership(Mono::error)
+        .take(2)
+        .as(StepVerifier::create)
+        .expectNext(new SqlDiscovery.Membership(Set.of(INSTANCE_NAME), fresh.asOf(), true))
+        .expectNext(new SqlDiscovery.Membership(Set.of(INSTANCE_NAME), fresh.asOf(), true))
+        .verifyComplete();
+
+    new SqlDiscovery(
+            new SqlDiscovery.Config(brokenConnectionString, SERVICE_NAME, INSTANCE_NAME, interval)
+                .withSnapshot(SqlDiscovery.Snapshot.of(copy, Duration.ZERO)))
+        .lookupMembership(Mono::error)
+        .as(StepVerifier::create)
+        .expectError()
+        .verify();
+
+    assertEquals(Set.of(INSTANCE_NAME), discovery.heartbeat(Mono::error).blockFirst());
+    final var stored = Files.readAllBytes(path);
+    final var later = discovery.lookupMembership(Mono::error).filter(m -> !m.stale()).blockFirst();
+    assertNotNull(later);
+    assertTrue(later.asOf().isAfter(fresh.asOf()));
+    assertArrayEquals(stored, Files.readAllBytes(path));
+
+    discovery.close();
+
+    new SqlDiscovery(
+            new SqlDiscovery.Config(brokenConnectionString, SERVICE_NAME, INSTANCE_NAME, interval)
+                .withSnapshot(SqlDiscovery.Snapshot.of(path, Duration.ofHours(1))))
+        .lookupMembership(Mono::error)
+        .take(1)
+        .as(StepVerifier::create)
+        .expectNext(new SqlDiscovery.Membership(Set.of(INSTANCE_NAME), later.asOf(), true))
+        .verifyComplete();
+
+    Files.delete(copy);
+    Files.delete(path);
+  }
+
+  @Test
+  public void testMetrics() {
+
+    final var metrics = new SimpleMetrics();
+    final var discovery = new SqlDiscovery(config.withMetrics(metrics));
+
+    assertTrue(Double.isNaN(metrics.value("lcloud.sql.heartbeat.age", "service", SERVICE_NAME)));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+    assertEquals(Set.of(INSTANCE_NAME), discovery.heartbeat(Mono::error).blockFirst());
+    assertEquals(Set.of(INSTANCE_NAME), discovery.lookup(Mono::error).blockFirst());
+
+    final String[] heartbeat = {"service", SERVICE_NAME, "operation", "heartbeat"};
+    assertEquals(1, metrics.histogram("lcloud.sql.latency", heartbeat).count());
+    assertTrue(metrics.histogram("lcloud.sql.latency", heartbeat).valueAt(0.5) > 0);
+    assertEquals(1, metrics.count("lcloud.sql.rows", heartbeat));
+    assertEquals(
+        1, metrics.count("lcloud.sql.rows", "service", SERVICE_NAME, "operation", "lookup"));
+    assertEquals(1.0, metrics.value("lcloud.sql.membership", "service", SERVICE_NAME));
+    assertTrue(metrics.value("lcloud.sql.heartbeat.age", "service", SERVICE_NAME) >= 0);
+    assertEquals(
+        quant.dividedBy(2).toNanos() / 1e9,
+        metrics.value("lcloud.sql.ping.interval", "service", SERVICE_NAME));
+
+    final var broken =
+        new SqlDiscovery(
+            new SqlDiscovery.Config("r2dbc:h2:mem:///broken", SERVICE_NAME, INSTANCE_NAME, quant)
+                .withMetrics(metrics));
+
+    assertEquals(0L, broken.cleanAll(throwable -> Mono.just(0L)).block());
+
+    final String[] cleanAll = {"service", SERVICE_NAME, "operation", "clean_all"};
+    assertEquals(1, metrics.count("lcloud.sql.errors", cleanAll));
+    assertEquals(1, metrics.count("lcloud.sql.fallbacks", cleanAll));
+  }
+
+  @Test
+  public void testAdaptivePing() {
+
+    final var interval = quant.multipliedBy(4);
+
+    final var fixed = new SqlDiscovery(config);
+
+    assertEquals(quant.dividedBy(2), fixed.effectiveInterval());
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval)
+                .withSchedule(SqlDiscovery.Schedule.of(0.2)));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Boolean.TRUE, discovery.ping(Mono::error).block());
+
+      final var effective = discovery.effectiveInterval();
+      assertTrue(effective.compareTo(interval.dividedBy(16)) >= 0, effective::toString);
+      assertTrue(effective.compareTo(interval) < 0, effective::toString);
+    }
+
+    try (final var ignored = new AutoDisposable(discovery.ping(Mono::error).repeat().subscribe())) {
+
+      assertEquals(Set.of(INSTANCE_NAME), discovery.lookup(Mono::error).blockFirst());
+    }
+  }
+
+  @Test
+  public void testAdaptivePingBackoff() {
+
+    final var interval = quant.multipliedBy(8);
+
+    final var discovery =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval)
+                .withSchedule(SqlDiscovery.Schedule.of(0)));
+
+    assertEquals(Boolean.TRUE, discovery.initialize().block());
+    assertEquals(Boolean.TRUE, discovery.ping(Mono::error).block());
+
+    new R2dbcEntityTemplate(ConnectionFactories.get(connectionString))
+        .getDatabaseClient()
+        .sql("drop table instances")
+        .fetch()
+        .rowsUpdated()
+        .block();
+
+    // instance is still alive, but backoff is not bounded by time left before expiry
+    for (int i = 0; i < 2; i++) {
+      discovery.ping(throwable -> Mono.just(false)).block();
+
+      final var effective = discovery.effectiveInterval();
+      assertTrue(effective.compareTo(interval.dividedBy(2)) > 0, effective::toString);
+      assertTrue(effective.compareTo(interval) <= 0, effective::toString);
+    }
+  }
+
+  @Test
+  public void testReplicas() {
+
+    final var interval = Duration.ofSeconds(1);
+    final var replicaConnectionString =
+        "r2dbc:h2:mem:///replica?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    final var brokenConnectionString = "r2dbc:h2:mem:///broken";
+
+    final var primaryConfig =
+        new SqlDiscovery.Config(connectionString, SERVICE_NAME, INSTANCE_NAME, interval);
+    final var primary = new SqlDiscovery(primaryConfig);
+    final var replica =
+        new SqlDiscovery(
+            new SqlDiscovery.Config(replicaConnectionString, SERVICE_NAME, "replica", interval));
+
+    assertEquals(Boolean.TRUE, primary.initialize().block());
+    assertEquals(Boolean.TRUE, replica.initialize().block());
+
+    try (final var ignored =
+        new AutoDisposable(
+            Flux.merge(primary.heartbeat(Mono::error), replica.heartbeat(Mono::error))
+                .subscribe())) {
+
+      try (final var routed =
+          new SqlDiscovery(
+              primaryConfig.withReplicas(
+                  SqlDiscovery.Replicas.of(List.of(replicaConnectionString), interval)))) {
+
+        assertEquals(Set.of("replica"), routed.lookup(Mono::error).blockFirst());
+        assertEquals(
+            Map.of(SERVICE_NAME, Set.of("replica")),
+            routed.lookupAll(Set.of(SERVICE_NAME), Mono::error).blockFirst());
+      }
+
+      try (final var failover =
+          new SqlDiscovery(
+              primaryConfig.withReplicas(
+                  SqlDiscovery.Replicas.of(List.of(brokenConnectionString), interval)))) {
+
+        assertEquals(Set.of(INSTANCE_NAME), failover.lookup(Mono::error).blockFirst());
+      }
+    }
+  }
+
+  @Test
+  public void testSharded() {
+
+    final var interval = Duration.ofSeconds(1);
+    final var shards =
+        List.of(
+            "r2dbc:h2:mem:///shard0?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "r2dbc:h2:mem:///shard1?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "r2dbc:h2:mem:///shard2?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+
+    for (final var shard : shards) {
+      final var template = new R2dbcEntityTemplate(ConnectionFactories.get(shard));
+      template.getDatabaseClient().sql("drop table if exists instances").then().block();
+      template.getDatabaseClient().sql("drop table if exists instances_schema").then().block();
+    }
+
+    final var services = new HashSet<String>();
+    final var discoveries = new ArrayList<ShardedSqlDiscovery>();
+    for (int i = 0; i < 12; i++) {
+      services.add("service" + i);
+      discoveries.add(
+          new ShardedSqlDiscovery(
+              new ShardedSqlDiscovery.Config(shards, "service" + i, INSTANCE_NAME, interval)));
+    }
+
+    for (final var discovery : discoveries) {
+      assertEquals(Boolean.TRUE, discovery.initialize().block());
+    }
+
+    try (final var ignored =
+        new AutoDisposable(
+            Flux.merge(discoveries.stream().map(d -> d.heartbeat(Mono::error)).toList())
+                .subscribe())) {
+
+      final var all =
+          discoveries
+              .get(0)
+              .lookupAll(services, Mono::error)
+              .filter(map -> map.values().stream().noneMatch(Set::isEmpty))
+              .blockFirst(Duration.ofSeconds(10));
+
+      assertNotNull(all);
+      assertEquals(services, all.keySet());
+      all.values().forEach(names -> assertEquals(Set.of(INSTANCE_NAME), names));
+
+      assertEquals(
+          Set.of(INSTANCE_NAME),
+          discoveries.get(1).lookupAll(Set.of(), Mono::error).blockFirst().get("service1"));
+    }
+
+    var used = 0;
+    var total = 0L;
+    for (final var shard : shards) {
+      final var count =
+          new R2dbcEntityTemplate(ConnectionFactories.get(shard))
+              .getDatabaseClient()
+              .sql("select count(*) as cnt from instances")
+              .map(row -> row.get("cnt", Long.class))
+              .one()
+              .block();
+      total += count;
+      used += count > 0 ? 1 : 0;
+    }
+
+    assertEquals(services.size(), total);
+    assertTrue(used > 1);
+
+    discoveries.forEach(ShardedSqlDiscovery::close);
+
+    // shard identity does not depend on connection options, services stay on their shards
+    final var reconfigured =
+        shards.stream().map(shard -> shard.replace(";DB_CLOSE_ON_EXIT=FALSE", "")).toList();
+
+    try (final var discovery =
+        new ShardedSqlDiscovery(
+            new ShardedSqlDiscovery.Config(
+                reconfigured, "service0", "reconfigured", Duration.ofSeconds(5)))) {
+      final var all = discovery.lookupAll(services, Mono::error).blockFirst();
+
+      assertNotNull(all);
+      assertEquals(services, all.keySet());
+      all.values().forEach(names -> assertEquals(Set.of(INSTANCE_NAME), names));
+    }
+  }
+
+  @Test
+  public void testShardNamesMustBeUnique() {
+
+    final var shard = "r2dbc:h2:mem:///shard0?options=DB_CLOSE_DELAY=-1";
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new ShardedSqlDiscovery(
+                new ShardedSqlDiscovery.Config(
+                    List.of(shard, shard + ";DB_CLOSE_ON_EXIT=FALSE"),
+                    SERVICE_NAME,
+                    INSTANCE_NAME,
+                    quant)));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new ShardedSqlDiscovery(
+                new ShardedSqlDiscovery.Config(List.of(shard), SERVICE_NAME, INSTANCE_NAME, quant)
+                    .withShardNames(List.of("a", "b"))));
+  }
 }
@@ -0,0 +1,203 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Instances known from announcements, each alive until its deadline.
+ *
+ * <p>Announcement of known instance only moves its deadline by compare and set, without locking or
+ * allocation. Expiry is driven by hashed timer wheel: instance is placed into slot of its deadline
+ * tick and is checked only when wheel reaches that slot, then either leaves or is placed into slot
+ * of moved deadline. Leaving instance deadline is swapped to {@link #REMOVED}, so announcement
+ * racing with leave either wins and keeps instance, or sees removal and joins again.
+ *
+ * <p>Membership changes are reported by events carrying snapshot of members. Events are queued
+ * under table monitor and delivered in order after it is released.
+ */
+final class MembershipTable implements MulticastDiscovery.Announcements {
+
+  /** Wheel slots count */
+  static final int SLOTS = 512;
+
+  /** Deadline of entry which has left */
+  static final long REMOVED = Long.MIN_VALUE;
+
+  private static final AtomicLongFieldUpdater<Entry> DEADLINE =
+      AtomicLongFieldUpdater.newUpdater(Entry.class, "deadline");
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final List<List<Entry>> wheel = new ArrayList<>(SLOTS);
+
+  private final List<Entry> expiring = new ArrayList<>();
+
+  private final long ttl;
+
+  private final long tick;
+
+  private final long start;
+
+  private final LongSupplier clock;
+
+  private final Consumer<MulticastDiscovery.MembershipEvent> events;
+
+  private final Queue<MulticastDiscovery.MembershipEvent> pending = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger emitting = new AtomicInteger();
+
+  /** Last processed tick, guarded by this */
+  private long current;
+
+  /**
+   * Construct empty table
+   *
+   * @param ttl instance TTL for announcements without TTL hint
+   * @param tick wheel tick, expiry precision
+   * @param clock nanoseconds clock
+   * @param events membership changes receiver
+   */
+  MembershipTable(
+      Duration ttl,
+      Duration tick,
+      LongSupplier clock,
+      Consumer<MulticastDiscovery.MembershipEvent> events) {
+    this.ttl = ttl.toNanos();
+    this.tick = Math.max(1, tick.toNanos());
+    this.clock = clock;
+    this.events = events;
+    this.start = clock.getAsLong();
+
+    for (int i = 0; i < SLOTS; i++) {
+      wheel.add(new ArrayList<>());
+    }
+  }
+
+  @Override
+  public void announce(String name, long ttlMillis) {
+    long deadline = clock.getAsLong() + (ttlMillis > 0 ? ttlMillis * 1_000_000 : ttl);
+
+    var entry = entries.get(name);
+    if (entry == null || !entry.refresh(deadline)) {
+      join(name, deadline);
+      drain();
+    }
+  }
+
+  /** Advance wheel to current time, expired instances leave */
+  void tick() {
+    synchronized (this) {
+      long now = clock.getAsLong();
+      long target = (now - start) / tick;
+
+      while (current < target) {
+        var slot = wheel.get((int) (++current % SLOTS));
+        if (slot.isEmpty()) {
+          continue;
+        }
+
+        expiring.addAll(slot);
+        slot.clear();
+
+        for (var entry : expiring) {
+          long deadline = entry.deadline;
+
+          // announcement moving deadline after the check fails, announcer joins again
+          if (deadline > now || !DEADLINE.compareAndSet(entry, deadline, REMOVED)) {
+            schedule(entry);
+          } else {
+            entries.remove(entry.name, entry);
+            emit(MulticastDiscovery.MembershipEvent.Kind.LEAVE, entry.name);
+          }
+        }
+
+        expiring.clear();
+      }
+    }
+
+    drain();
+  }
+
+  /**
+   * Current members
+   *
+   * @return snapshot
+   */
+  Set<String> members() {
+    return Set.copyOf(entries.keySet());
+  }
+
+  private synchronized void join(String name, long deadline) {
+    var entry = entries.get(name);
+    if (entry != null && entry.refresh(deadline)) {
+      return;
+    }
+
+    entry = new Entry(name, deadline);
+    entries.put(name, entry);
+    schedule(entry);
+
+    emit(MulticastDiscovery.MembershipEvent.Kind.JOIN, name);
+  }
+
+  private void schedule(Entry entry) {
+    long due = Math.max(current + 1, Math.ceilDiv(entry.deadline - start, tick));
+    wheel.get((int) (due % SLOTS)).add(entry);
+  }
+
+  private void emit(MulticastDiscovery.MembershipEvent.Kind kind, String name) {
+    pending.offer(new MulticastDiscovery.MembershipEvent(kind, name, members()));
+  }
+
+  /** Deliver queued events outside of table monitor, one thread at a time */
+  private void drain() {
+    if (emitting.getAndIncrement() != 0) {
+      return;
+    }
+
+    int missed = 1;
+    do {
+      for (var event = pending.poll(); event != null; event = pending.poll()) {
+        events.accept(event);
+      }
+      missed = emitting.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private static final class Entry {
+    final String name;
+
+    volatile long deadline;
+
+    Entry(String name, long deadline) {
+      this.name = name;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Move deadline unless entry has left
+     *
+     * @param next new deadline
+     * @return false if entry has left
+     */
+    boolean refresh(long next) {
+      for (long deadline = this.deadline; deadline != REMOVED; deadline = this.deadline) {
+        if (DEADLINE.compareAndSet(this, deadline, next)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Watches membership of many services on one multicast group.
+ *
+ * <p>Group is joined once per interface while any service is watched, and every received message is
+ * parsed once, then routed to watchers of its service. Services are registered by subscription and
+ * unregistered on cancel.
+ */
+public class MulticastDemultiplexer {
+  final FileLineLogger logger =
+      FileLineLogger.getLogger(MulticastDemultiplexer.class.getName(), "<<< MUX  ", 32);
+
+  final Config config;
+
+  final ServiceRouter router = new ServiceRouter();
+
+  final Flux<Void> receiving;
+
+  /**
+   * construct with config
+   *
+   * @param config config
+   */
+  public MulticastDemultiplexer(Config config) {
+    this.config = config;
+    this.receiving =
+        SelectorReceiver.<Void>receive(
+                config.multicastAddr,
+                config.multicastPort,
+                buffer -> {
+                  router.route(buffer);
+                  return null;
+                },
+                logger)
+            .share();
+  }
+
+  /**
+   * Membership changes of service, same as {@link MulticastDiscovery#membership()}
+   *
+   * @param serviceName service name
+   * @return join and leave events, each with members snapshot after change
+   */
+  public Flux<MulticastDiscovery.MembershipEvent> membership(String serviceName) {
+    return Flux.<MulticastDiscovery.MembershipEvent>create(
+            sink -> {
+              var tick = MulticastDiscovery.tick(config.ttl);
+              var table = new MembershipTable(config.ttl, tick, System::nanoTime, sink::next);
+              var route = new ServiceRouter.Route(serviceName, table);
+
+              router.register(route);
+
+              sink.onDispose(
+                  Disposables.composite(
+                      () -> router.unregister(route),
+                      receiving.subscribe(none -> {}, sink::error),
+                      Schedulers.parallel()
+                          .schedulePeriodically(
+                              table::tick, tick.toNanos(), tick.toNanos(), TimeUnit.NANOSECONDS)));
+            })
+        .publishOn(Schedulers.boundedElastic());
+  }
+
+  /**
+   * Members snapshots of service on change
+   *
+   * @param serviceName service name
+   * @return members
+   */
+  public Flux<Set<String>> members(String serviceName) {
+    return membership(serviceName).map(MulticastDiscovery.MembershipEvent::members);
+  }
+
+  /**
+   * Multicast demultiplexer config
+   *
+   * @param multicastAddr address
+   * @param multicastPort port
+   * @param ttl membership TTL of instance announced without TTL hint
+   */
+  public record Config(String multicastAddr, int multicastPort, Duration ttl) {}
+}
@@ -4,11 +4,15 @@ package org.mtbo.lcloud.discovery.multicast;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.HashSet;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
@@ -19,8 +23,12 @@ public class MulticastDiscovery {
   final FileLineLogger logger =
       FileLineLogger.getLogger(MulticastDiscovery.class.getName(), "<<< SVC  ", 32);
 
+  static final Duration MIN_TICK = Duration.ofMillis(10);
+
   final Config config;
 
+  final PacketParser parser;
+
   final Scheduler networkManagementScheduler =
       Schedulers.newParallel("network-sched", Math.max(2, (Schedulers.DEFAULT_POOL_SIZE + 3) / 4));
 
@@ -39,6 +47,7 @@ public class MulticastDiscovery {
    */
   public MulticastDiscovery(Config config) throws SocketException {
     this.config = config;
+    this.parser = new PacketParser(config.serviceName);
   }
 
   /**
@@ -47,9 +56,71 @@ public class MulticastDiscovery {
    * @return list of instances
    */
   public Flux<HashSet<String>> receive() {
-    return bindSockets(
+    return names(Announcements.NONE)
+        .doOnEach(stringSignal -> logger.finer(stringSignal.toString()))
+        .bufferTimeout(Integer.MAX_VALUE, config.interval, HashSet::new)
+        .doOnNext(message -> logger.finer(message.toString()))
+        .map(
+            strings -> {
+              strings.remove("");
+              return strings;
+            });
+  }
+
+  /**
+   * Membership changes. Every announcement refreshes deadline of instance, instance joins on first
+   * announcement and leaves when deadline passes. Deadline is TTL hint of v2 frame or {@link
+   * Config#ttl}. Events are published on separate scheduler, slow subscriber does not delay
+   * receiving.
+   *
+   * @return join and leave events, each with members snapshot after change
+   */
+  public Flux<MembershipEvent> membership() {
+    return Flux.<MembershipEvent>create(
+            sink -> {
+              var tick = tick(config.ttl);
+              var table = new MembershipTable(config.ttl, tick, System::nanoTime, sink::next);
+
+              sink.onDispose(
+                  Disposables.composite(
+                      names(table).subscribe(name -> {}, sink::error),
+                      Schedulers.parallel()
+                          .schedulePeriodically(
+                              table::tick, tick.toNanos(), tick.toNanos(), TimeUnit.NANOSECONDS)));
+            })
+        .publishOn(Schedulers.boundedElastic());
+  }
+
+  /**
+   * Members snapshots on change
+   *
+   * @return members
+   */
+  public Flux<Set<String>> members() {
+    return membership().map(MembershipEvent::members);
+  }
+
+  /**
+   * Membership timer wheel tick, sixteenth of TTL but not less than {@link #MIN_TICK}
+   *
+   * @param ttl membership TTL
+   * @return tick
+   */
+  static Duration tick(Duration ttl) {
+    var tick = ttl.dividedBy(16);
+    return tick.compareTo(MIN_TICK) < 0 ? MIN_TICK : tick;
+  }
+
+  private Flux<String> names(Announcements announcements) {
+    return config.receiver == Receiver.SELECTOR
+        ? SelectorReceiver.receive(
+            config.multicastAddr,
+            config.multicastPort,
+            buffer -> parse(buffer, announcements),
+            logger)
+        : bindSockets(
             pair ->
-                receivePacket(pair)
+                receivePacket(pair, announcements)
                     //                    .doOnNext(message -> logger.finer(message))
                     .onErrorResume(
                         throwable -> {
@@ -58,21 +129,15 @@ public class MulticastDiscovery {
                           }
                           return Mono.delay(Duration.ofMillis(100)).thenReturn("");
                         })
-                    .repeat())
-        .doOnEach(stringSignal -> logger.finer(stringSignal.toString()))
-        .bufferTimeout(Integer.MAX_VALUE, config.interval, HashSet::new)
-        .doOnNext(message -> logger.finer(message.toString()))
-        .map(
-            strings -> {
-              strings.remove("");
-              return strings;
-            });
+                    .repeat());
   }
 
   private Mono<String> receivePacket(
-      Pair<? extends MulticastSocket, ? extends NetworkInterface> pair) {
+      Pair<? extends MulticastSocket, ? extends NetworkInterface> pair,
+      Announcements announcements) {
 
-    final byte[] buf = new byte[256];
+    final byte[] buf = new byte[WireProtocol.MAX_FRAME];
+    final ByteBuffer buffer = ByteBuffer.wrap(buf);
     DatagramPacket packet1 = new DatagramPacket(buf, buf.length);
 
     return Mono.just(packet1)
@@ -89,17 +154,7 @@ public class MulticastDiscovery {
                             //                            logger.finest("Received packet  on " +
                             // pair.t2);
 
-                            String[] received =
-                                new String(datagramPacket.getData(), 0, datagramPacket.getLength())
-                                    .split(" ");
-                            if (4 == received.length
-                                && Objects.equals(received[0], "LC_DISCOVERY")
-                                && received[1].equals(config.serviceName)
-                                && Objects.equals(received[2], "FROM")) {
-                              return received[3];
-                            } else {
-                              return null;
-                            }
+                            return parse(buffer.limit(datagramPacket.getLength()), announcements);
 
                           } catch (SocketTimeoutException | SocketException e) {
                             //                            logger.finest("Receiving ERROR on " +
@@ -114,6 +169,34 @@ public class MulticastDiscovery {
                     .publishOn(receiveScheduler));
   }
 
+  @Nullable
+  private String parse(ByteBuffer buffer, Announcements announcements) {
+    var name = parser.parse(buffer);
+    if (name != null) {
+      announcements.announce(name, WireProtocol.ttl(buffer));
+    }
+    return name;
+  }
+
+  /**
+   * Interface usable for multicast receive
+   *
+   * @param networkInterface network interface
+   * @return true if interface is up, supports multicast and has address
+   */
+  static boolean usable(NetworkInterface networkInterface) {
+    try {
+      return networkInterface.supportsMulticast()
+          && networkInterface.isUp()
+          && !networkInterface.isLoopback()
+          && networkInterface.supportsMulticast()
+          && !networkInterface.isPointToPoint()
+          && networkInterface.inetAddresses().findAny().isPresent();
+    } catch (SocketException e) {
+      return false;
+    }
+  }
+
   private <T> Flux<T> bindSockets(
       Function<Pair<MulticastSocket, NetworkInterface>, ? extends Flux<? extends T>>
           socketSupplier) {
@@ -173,19 +256,7 @@ public class MulticastDiscovery {
         .flatMapMany(
             networkInterfaceStream ->
                 Flux.fromStream(networkInterfaceStream)
-                    .filter(
-                        networkInterface -> {
-                          try {
-                            return networkInterface.supportsMulticast()
-                                && networkInterface.isUp()
-                                && !networkInterface.isLoopback()
-                                && networkInterface.supportsMulticast()
-                                && !networkInterface.isPointToPoint()
-                                && networkInterface.inetAddresses().findAny().isPresent();
-                          } catch (SocketException e) {
-                            return false;
-                          }
-                        })
+                    .filter(MulticastDiscovery::usable)
                     .publishOn(networkManagementScheduler))
         .doOnNext(
             networkInterface -> {
@@ -213,6 +284,50 @@ public class MulticastDiscovery {
         .publishOn(Schedulers.boundedElastic());
   }
 
+  /** Receiver of parsed announcements */
+  @FunctionalInterface
+  interface Announcements {
+
+    /** Ignores announcements */
+    Announcements NONE = (name, ttlMillis) -> {};
+
+    /**
+     * Instance announced itself
+     *
+     * @param name instance name
+     * @param ttlMillis TTL hint, 0 if not present
+     */
+    void announce(String name, long ttlMillis);
+  }
+
+  /**
+   * Membership change
+   *
+   * @param kind change kind
+   * @param instance instance name
+   * @param members members after change
+   */
+  public record MembershipEvent(Kind kind, String instance, Set<String> members) {
+
+    /** Change kind */
+    public enum Kind {
+      /** Instance announced first time or after leave */
+      JOIN,
+
+      /** Instance was not announced within its TTL */
+      LEAVE
+    }
+  }
+
+  /** Receiving implementation */
+  public enum Receiver {
+    /** Blocking multicast socket per interface, polled with receive timeout */
+    SOCKETS,
+
+    /** Non-blocking channel per interface, all served by one selector thread without timeouts */
+    SELECTOR
+  }
+
   /**
    * Multicast discovery config
    *
@@ -220,9 +335,67 @@ public class MulticastDiscovery {
    * @param multicastAddr address
    * @param multicastPort port
    * @param interval lookup interval
+   * @param receiver receiving implementation
+   * @param ttl membership TTL of instance announced without TTL hint
    */
   public record Config(
-      String serviceName, String multicastAddr, int multicastPort, Duration interval) {}
+      String serviceName,
+      String multicastAddr,
+      int multicastPort,
+      Duration interval,
+      Receiver receiver,
+      Duration ttl) {
+
+    /**
+     * Config with {@link Receiver#SOCKETS} receiver
+     *
+     * @param serviceName service name
+     * @param multicastAddr address
+     * @param multicastPort port
+     * @param interval lookup interval
+     */
+    public Config(String serviceName, String multicastAddr, int multicastPort, Duration interval) {
+      this(serviceName, multicastAddr, multicastPort, interval, Receiver.SOCKETS);
+    }
+
+    /**
+     * Config with membership TTL of three intervals
+     *
+     * @param serviceName service name
+     * @param multicastAddr address
+     * @param multicastPort port
+     * @param interval lookup interval
+     * @param receiver receiving implementation
+     */
+    public Config(
+        String serviceName,
+        String multicastAddr,
+        int multicastPort,
+        Duration interval,
+        Receiver receiver) {
+      this(serviceName, multicastAddr, multicastPort, interval, receiver, interval.multipliedBy(3));
+    }
+
+    /**
+     * Copy with another receiver
+     *
+     * @param receiver receiving implementation
+     * @return new config
+     */
+    public Config withReceiver(Receiver receiver) {
+      return new Config(serviceName, multicastAddr, multicastPort, interval, receiver, ttl);
+    }
+
+    /**
+     * Copy with another membership TTL
+     *
+     * @param ttl membership TTL of instance announced without TTL hint
+     * @return new config
+     */
+    public Config withTtl(Duration ttl) {
+      return new Config(serviceName, multicastAddr, multicastPort, interval, receiver, ttl);
+    }
+  }
 
   /**
    * just Pair
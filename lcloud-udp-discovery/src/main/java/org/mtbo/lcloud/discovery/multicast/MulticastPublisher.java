@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.net.*;
 import java.time.Duration;
 import java.util.logging.Level;
+import javax.annotation.Nullable;
 import org.mtbo.lcloud.logging.FileLineLogger;
 
 /** Advertise instance on multicast network. */
@@ -14,6 +15,9 @@ public class MulticastPublisher implements Runnable {
   final FileLineLogger logger =
       FileLineLogger.getLogger(MulticastPublisher.class.getName(), "CLI >>>  ");
 
+  /** TTL hint of v2 frame, in publish intervals */
+  static final int TTL_INTERVALS = 3;
+
   private final Config config;
 
   /**
@@ -50,12 +54,8 @@ public class MulticastPublisher implements Runnable {
       //      try (ExecutorService service = Executors.newFixedThreadPool(interfaces.size())) {
       //
       //        for (var intf : interfaces) {
-      final var message =
-          "LC_DISCOVERY "
-              + config.serviceName.replace(" ", "_")
-              + " FROM "
-              + config.instanceName.replace(" ", "_");
-      var buf = message.getBytes();
+      var buf = payload(config);
+      int sequence = 0;
       //
       //          intf.getInterfaceAddresses().stream()
       //              .map(InterfaceAddress::getAddress)
@@ -69,10 +69,19 @@ public class MulticastPublisher implements Runnable {
       //                        () -> {
       try (var socket = new DatagramSocket(null)) {
         while (!Thread.currentThread().isInterrupted()) {
+          if (config.wire == Wire.V2) {
+            WireProtocol.sequence(buf, sequence);
+          }
+
           if (logger.isLoggable(Level.FINEST)) {
-            logger.finest(message /* + " on " + intf*/);
+            logger.finest(
+                (config.wire == Wire.V2
+                    ? "v2 frame #" + sequence + " of " + buf.length + " bytes"
+                    : new String(buf)) /* + " on " + intf*/);
           }
 
+          sequence++;
+
           try {
             socket.send(packet);
           } catch (IOException e) {
@@ -98,6 +107,40 @@ public class MulticastPublisher implements Runnable {
     }
   }
 
+  /**
+   * Announcement of config in its wire format, sequence of v2 frame is 0
+   *
+   * @param config config
+   * @return message bytes
+   */
+  static byte[] payload(Config config) {
+    var serviceName = WireProtocol.normalize(config.serviceName);
+    var instanceName = WireProtocol.normalize(config.instanceName);
+
+    if (config.wire == Wire.V2) {
+      return WireProtocol.encode(
+          serviceName,
+          instanceName,
+          0,
+          config.interval.multipliedBy(TTL_INTERVALS),
+          config.metadata);
+    }
+
+    return ("LC_DISCOVERY " + serviceName + " FROM " + instanceName).getBytes();
+  }
+
+  /** Announcement wire format */
+  public enum Wire {
+    /** Text message {@code LC_DISCOVERY <service> FROM <instance>}, spaces replaced by '_' */
+    V1,
+
+    /**
+     * Binary frame with sequence, TTL hint, optional metadata and CRC, names normalized as in
+     * {@link #V1}. Understood by receivers since same release as this option.
+     */
+    V2
+  }
+
   /**
    * Publisher config
    *
@@ -106,7 +149,50 @@ public class MulticastPublisher implements Runnable {
    * @param addr address
    * @param port port
    * @param interval publish interval
+   * @param wire announcement wire format
+   * @param metadata optional metadata, sent only with {@link Wire#V2}
    */
   public record Config(
-      String serviceName, String instanceName, String addr, int port, Duration interval) {}
+      String serviceName,
+      String instanceName,
+      String addr,
+      int port,
+      Duration interval,
+      Wire wire,
+      @Nullable String metadata) {
+
+    /**
+     * Config with {@link Wire#V1} format
+     *
+     * @param serviceName service name
+     * @param instanceName this instance name
+     * @param addr address
+     * @param port port
+     * @param interval publish interval
+     */
+    public Config(
+        String serviceName, String instanceName, String addr, int port, Duration interval) {
+      this(serviceName, instanceName, addr, port, interval, Wire.V1, null);
+    }
+
+    /**
+     * Copy with another wire format
+     *
+     * @param wire announcement wire format
+     * @return new config
+     */
+    public Config withWire(Wire wire) {
+      return new Config(serviceName, instanceName, addr, port, interval, wire, metadata);
+    }
+
+    /**
+     * Copy with metadata, switches to {@link Wire#V2}
+     *
+     * @param metadata metadata
+     * @return new config
+     */
+    public Config withMetadata(@Nullable String metadata) {
+      return new Config(serviceName, instanceName, addr, port, interval, Wire.V2, metadata);
+    }
+  }
 }
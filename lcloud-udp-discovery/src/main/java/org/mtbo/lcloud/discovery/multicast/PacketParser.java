@@ -0,0 +1,212 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+
+/**
+ * Byte level parser of {@code LC_DISCOVERY <service> FROM <instance>} messages and of {@link
+ * WireProtocol} v2 frames.
+ *
+ * <p>Prefix or frame fields are read directly in received buffer, instance name is resolved through
+ * interning table keyed by hash and bytes, so repeated announcement of known instance allocates
+ * nothing. Table is bounded two-way set associative cache, new name replaces older name of its
+ * bucket, so departed instances do not occupy it forever. Safe for concurrent use.
+ */
+final class PacketParser {
+
+  /** Default interning table capacity */
+  static final int CAPACITY = 1024;
+
+  private static final byte SPACE = ' ';
+
+  private final byte[] prefix;
+
+  private final byte[] service;
+
+  /** Buckets of two slots, newer name first */
+  private final AtomicReferenceArray<Name> names;
+
+  /**
+   * Construct for service
+   *
+   * @param serviceName service name
+   */
+  PacketParser(String serviceName) {
+    this(serviceName, CAPACITY);
+  }
+
+  /**
+   * Construct for service
+   *
+   * @param serviceName service name
+   * @param capacity maximum interned names
+   */
+  PacketParser(String serviceName, int capacity) {
+    var announced = WireProtocol.normalize(serviceName);
+    this.prefix = ("LC_DISCOVERY " + announced + " FROM ").getBytes(StandardCharsets.UTF_8);
+    this.service = announced.getBytes(StandardCharsets.UTF_8);
+    this.names = new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(2, capacity) * 2 - 1));
+  }
+
+  /**
+   * Instance name from received message, buffer position and limit are not changed
+   *
+   * @param buffer message between position and limit
+   * @return instance name, null if message is not a discovery of the service
+   */
+  @Nullable
+  String parse(ByteBuffer buffer) {
+    if (WireProtocol.framed(buffer)) {
+      return parseFrame(buffer);
+    }
+
+    return parseText(buffer);
+  }
+
+  @Nullable
+  private String parseText(ByteBuffer buffer) {
+    int start = buffer.position() + prefix.length;
+    int limit = buffer.limit();
+
+    if (start >= limit) {
+      return null;
+    }
+
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(buffer.position() + i) != prefix[i]) {
+        return null;
+      }
+    }
+
+    int end = start;
+    int hash = 0;
+
+    while (end < limit && buffer.get(end) != SPACE) {
+      hash = 31 * hash + buffer.get(end++);
+    }
+
+    // trailing spaces are tolerated, as by previous split based parsing
+    for (int i = end; i < limit; i++) {
+      if (buffer.get(i) != SPACE) {
+        return null;
+      }
+    }
+
+    if (end == start) {
+      return null;
+    }
+
+    return intern(buffer, start, end - start, hash);
+  }
+
+  @Nullable
+  private String parseFrame(ByteBuffer buffer) {
+    if (!WireProtocol.valid(buffer)) {
+      return null;
+    }
+
+    int position = buffer.position() + WireProtocol.SERVICE_OFFSET;
+    if ((buffer.get(position) & 0xFF) != service.length) {
+      return null;
+    }
+
+    for (int i = 0; i < service.length; i++) {
+      if (buffer.get(position + 1 + i) != service[i]) {
+        return null;
+      }
+    }
+
+    int instance = WireProtocol.instanceOffset(buffer);
+    int start = instance + 1;
+    int length = buffer.get(instance) & 0xFF;
+
+    return intern(buffer, start, length, hash(buffer, start, start + length));
+  }
+
+  /**
+   * Interned names count
+   *
+   * @return count
+   */
+  int size() {
+    int size = 0;
+    for (int i = 0; i < names.length(); i++) {
+      if (names.get(i) != null) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Hash of bytes, as used for interning
+   *
+   * @param buffer buffer
+   * @param start first byte index
+   * @param end index after last byte
+   * @return hash
+   */
+  static int hash(ByteBuffer buffer, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + buffer.get(i);
+    }
+    return hash;
+  }
+
+  /**
+   * Interned instance name
+   *
+   * @param buffer buffer
+   * @param start name first byte index
+   * @param length name length
+   * @param hash {@link #hash} of name bytes
+   * @return name
+   */
+  String intern(ByteBuffer buffer, int start, int length, int hash) {
+    int slot = (hash ^ (hash >>> 16)) & (names.length() - 2);
+
+    var newer = names.get(slot);
+    if (newer != null && newer.hash == hash && newer.matches(buffer, start, length)) {
+      return newer.value;
+    }
+
+    var older = names.get(slot + 1);
+    if (older != null && older.hash == hash && older.matches(buffer, start, length)) {
+      return older.value;
+    }
+
+    var bytes = new byte[length];
+    buffer.get(start, bytes);
+    var value = new String(bytes, StandardCharsets.UTF_8);
+
+    // racing receivers may lose an update, name is then interned on next receive
+    if (newer != null) {
+      names.set(slot + 1, newer);
+    }
+    names.set(slot, new Name(hash, bytes, value));
+
+    return value;
+  }
+
+  private record Name(int hash, byte[] bytes, String value) {
+
+    boolean matches(ByteBuffer buffer, int start, int length) {
+      if (bytes.length != length) {
+        return false;
+      }
+
+      for (int i = 0; i < length; i++) {
+        if (bytes[i] != buffer.get(start + i)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.mtbo.lcloud.logging.FileLineLogger;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Receives discovery messages on non-blocking channels, one per usable interface, joined to the
+ * multicast group and multiplexed by one selector. One daemon thread blocks in select until a
+ * datagram arrives, so idle receiving costs no wakeups. Datagrams are read into direct buffer of
+ * each channel, reused for its lifetime. Flux fails if group is not joined on any interface.
+ */
+final class SelectorReceiver {
+
+  private static final int BUFFER_SIZE = WireProtocol.MAX_FRAME;
+
+  private SelectorReceiver() {}
+
+  /**
+   * Flux of handled messages. Channels are opened on subscribe and closed on cancel.
+   *
+   * @param multicastAddr group address
+   * @param multicastPort port
+   * @param handler message handler, called on selector thread with message between position and
+   *     limit of reused buffer, returns null for messages to skip
+   * @param logger logger
+   * @param <T> type of handled message
+   * @return handled messages
+   */
+  static <T> Flux<T> receive(
+      String multicastAddr,
+      int multicastPort,
+      Function<ByteBuffer, T> handler,
+      FileLineLogger logger) {
+    return Flux.create(sink -> start(multicastAddr, multicastPort, handler, logger, sink));
+  }
+
+  private static <T> void start(
+      String multicastAddr,
+      int multicastPort,
+      Function<ByteBuffer, T> handler,
+      FileLineLogger logger,
+      FluxSink<T> sink) {
+    final Selector selector;
+    final List<DatagramChannel> channels = new ArrayList<>();
+
+    try {
+      var group = InetAddress.getByName(multicastAddr);
+      var family =
+          group instanceof Inet6Address
+              ? StandardProtocolFamily.INET6
+              : StandardProtocolFamily.INET;
+
+      selector = Selector.open();
+
+      for (var networkInterface :
+          NetworkInterface.networkInterfaces().filter(MulticastDiscovery::usable).toList()) {
+        var channel = DatagramChannel.open(family);
+        try {
+          channel
+              .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+              .bind(new InetSocketAddress(multicastPort))
+              .setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+
+          channel.join(group, networkInterface);
+          channel.configureBlocking(false);
+          channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(BUFFER_SIZE));
+          channels.add(channel);
+
+          logger.finer("Join group: " + group + " on " + networkInterface);
+        } catch (IOException e) {
+          logger.finer("Join failed on " + networkInterface + ": " + e.getMessage(), e);
+          close(List.of(channel), null, logger);
+        }
+      }
+
+      if (channels.isEmpty()) {
+        close(channels, selector, logger);
+        sink.error(new IOException("Group " + group + " is not joined on any interface"));
+        return;
+      }
+    } catch (IOException e) {
+      close(channels, null, logger);
+      sink.error(e);
+      return;
+    }
+
+    var thread =
+        Thread.ofPlatform()
+            .daemon()
+            .name("lcloud-multicast-selector")
+            .start(() -> loop(handler, logger, sink, selector, channels));
+
+    sink.onDispose(
+        () -> {
+          thread.interrupt();
+          selector.wakeup();
+        });
+  }
+
+  private static <T> void loop(
+      Function<ByteBuffer, T> handler,
+      FileLineLogger logger,
+      FluxSink<T> sink,
+      Selector selector,
+      List<DatagramChannel> channels) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        selector.select();
+
+        var keys = selector.selectedKeys();
+        for (var key : keys) {
+          var channel = (DatagramChannel) key.channel();
+          var buffer = (ByteBuffer) key.attachment();
+
+          while (channel.receive(buffer.clear()) != null) {
+            var value = handler.apply(buffer.flip());
+            if (value != null) {
+              sink.next(value);
+            }
+          }
+        }
+        keys.clear();
+      }
+    } catch (IOException e) {
+      logger.finer("Selector receive failed: " + e.getMessage(), e);
+      sink.error(e);
+    } finally {
+      close(channels, selector, logger);
+    }
+  }
+
+  private static void close(
+      List<DatagramChannel> channels, @Nullable Selector selector, FileLineLogger logger) {
+    for (var channel : channels) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.finer("Close failed: " + e.getMessage(), e);
+      }
+    }
+
+    if (selector != null) {
+      try {
+        selector.close();
+      } catch (IOException e) {
+        logger.finer("Close failed: " + e.getMessage(), e);
+      }
+    }
+  }
+}
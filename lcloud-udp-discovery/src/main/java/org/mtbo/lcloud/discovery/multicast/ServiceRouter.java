@@ -0,0 +1,203 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes announcements of many services to registered receivers, parsing every message once.
+ *
+ * <p>Service name is located in received bytes and looked up in open addressing table keyed by hash
+ * and bytes, so routing cost does not depend on registered services count. Table is copied on
+ * registration change, routing reads it without locking.
+ */
+final class ServiceRouter {
+
+  private static final byte[] TEXT_PREFIX = "LC_DISCOVERY ".getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] TEXT_FROM = " FROM ".getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte SPACE = ' ';
+
+  private final List<Route> registered = new ArrayList<>();
+
+  private volatile Route[] routes = new Route[2];
+
+  /** Route of one service to its receiver */
+  static final class Route {
+    final byte[] service;
+
+    final int hash;
+
+    final PacketParser parser;
+
+    final MulticastDiscovery.Announcements announcements;
+
+    /**
+     * Construct route
+     *
+     * @param serviceName service name
+     * @param announcements receiver of service announcements
+     */
+    Route(String serviceName, MulticastDiscovery.Announcements announcements) {
+      this.service = serviceName.getBytes(StandardCharsets.UTF_8);
+      this.hash = PacketParser.hash(ByteBuffer.wrap(service), 0, service.length);
+      this.parser = new PacketParser(serviceName);
+      this.announcements = announcements;
+    }
+
+    boolean matches(ByteBuffer buffer, int start, int length) {
+      if (service.length != length) {
+        return false;
+      }
+
+      for (int i = 0; i < length; i++) {
+        if (service[i] != buffer.get(start + i)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * Start routing service announcements
+   *
+   * @param route route
+   */
+  synchronized void register(Route route) {
+    registered.add(route);
+    rebuild();
+  }
+
+  /**
+   * Stop routing service announcements
+   *
+   * @param route registered route
+   */
+  synchronized void unregister(Route route) {
+    registered.remove(route);
+    rebuild();
+  }
+
+  /**
+   * Route received message. Buffer position and limit are not changed.
+   *
+   * @param buffer message between position and limit
+   * @return true if message was routed to any receiver
+   */
+  boolean route(ByteBuffer buffer) {
+    int serviceStart;
+    int serviceLength;
+    int instanceStart;
+    int instanceLength;
+
+    if (WireProtocol.framed(buffer)) {
+      if (!WireProtocol.valid(buffer)) {
+        return false;
+      }
+
+      int instance = WireProtocol.instanceOffset(buffer);
+
+      serviceStart = buffer.position() + WireProtocol.SERVICE_OFFSET + 1;
+      serviceLength = instance - serviceStart;
+      instanceStart = instance + 1;
+      instanceLength = buffer.get(instance) & 0xFF;
+    } else {
+      int position = buffer.position();
+      int limit = buffer.limit();
+
+      if (!startsWith(buffer, position, TEXT_PREFIX)) {
+        return false;
+      }
+
+      serviceStart = position + TEXT_PREFIX.length;
+      int serviceEnd = next(buffer, serviceStart, limit);
+
+      if (!startsWith(buffer, serviceEnd, TEXT_FROM)) {
+        return false;
+      }
+
+      instanceStart = serviceEnd + TEXT_FROM.length;
+      int instanceEnd = next(buffer, instanceStart, limit);
+
+      // trailing spaces are tolerated, as by PacketParser
+      for (int i = instanceEnd; i < limit; i++) {
+        if (buffer.get(i) != SPACE) {
+          return false;
+        }
+      }
+
+      serviceLength = serviceEnd - serviceStart;
+      instanceLength = instanceEnd - instanceStart;
+
+      if (serviceLength == 0 || instanceLength == 0) {
+        return false;
+      }
+    }
+
+    var table = routes;
+    int mask = table.length - 1;
+    int serviceHash = PacketParser.hash(buffer, serviceStart, serviceStart + serviceLength);
+    int instanceHash = 0;
+    boolean routed = false;
+
+    // same service may be registered many times, all are in one probe sequence
+    for (int slot = serviceHash & mask; table[slot] != null; slot = (slot + 1) & mask) {
+      var route = table[slot];
+      if (route.hash == serviceHash && route.matches(buffer, serviceStart, serviceLength)) {
+        if (!routed) {
+          instanceHash = PacketParser.hash(buffer, instanceStart, instanceStart + instanceLength);
+          routed = true;
+        }
+
+        route.announcements.announce(
+            route.parser.intern(buffer, instanceStart, instanceLength, instanceHash),
+            WireProtocol.ttl(buffer));
+      }
+    }
+
+    return routed;
+  }
+
+  private void rebuild() {
+    // at most half full, so probing stays short and always ends at empty slot
+    var table = new Route[Integer.highestOneBit(Math.max(1, registered.size()) * 4 - 1)];
+    int mask = table.length - 1;
+
+    for (var route : registered) {
+      int slot = route.hash & mask;
+      while (table[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = route;
+    }
+
+    routes = table;
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, int position, byte[] prefix) {
+    if (buffer.limit() - position < prefix.length) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(position + i) != prefix[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int next(ByteBuffer buffer, int position, int limit) {
+    while (position < limit && buffer.get(position) != SPACE) {
+      position++;
+    }
+    return position;
+  }
+}
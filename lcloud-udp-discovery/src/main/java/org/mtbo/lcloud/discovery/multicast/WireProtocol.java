@@ -0,0 +1,221 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.CRC32C;
+import javax.annotation.Nullable;
+
+/**
+ * Binary announcement frame, version 2. All numbers are big endian.
+ *
+ * <pre>
+ *   u16  magic 0xD15C
+ *   u8   version 2
+ *   u8   flags, bit 0 - metadata present
+ *   u32  sequence
+ *   u32  TTL hint, milliseconds
+ *   u8   service length, service UTF-8 bytes
+ *   u8   instance length, instance UTF-8 bytes
+ *   u16  metadata length, metadata UTF-8 bytes (only if flagged)
+ *   u32  CRC32C of all preceding bytes
+ * </pre>
+ *
+ * <p>Magic starts with non ASCII byte, so frame is never mistaken for v1 text message.
+ */
+final class WireProtocol {
+
+  /** Frame magic */
+  static final short MAGIC = (short) 0xD15C;
+
+  /** Frame version */
+  static final byte VERSION = 2;
+
+  /** Metadata is present */
+  static final byte FLAG_METADATA = 1;
+
+  /** Largest frame, fits single Ethernet packet */
+  static final int MAX_FRAME = 1472;
+
+  static final int VERSION_OFFSET = 2;
+
+  static final int FLAGS_OFFSET = 3;
+
+  static final int SEQUENCE_OFFSET = 4;
+
+  static final int TTL_OFFSET = 8;
+
+  static final int SERVICE_OFFSET = 12;
+
+  static final int CRC_LENGTH = 4;
+
+  private static final ThreadLocal<CRC32C> crc = ThreadLocal.withInitial(CRC32C::new);
+
+  private WireProtocol() {}
+
+  /**
+   * Name as announced in any wire format, spaces replaced by '_'
+   *
+   * @param name service or instance name
+   * @return announced name
+   */
+  static String normalize(String name) {
+    return name.replace(" ", "_");
+  }
+
+  /**
+   * Encode frame
+   *
+   * @param serviceName service name, at most 255 bytes
+   * @param instanceName instance name, at most 255 bytes
+   * @param sequence sequence number
+   * @param ttl TTL hint
+   * @param metadata optional metadata
+   * @return frame
+   * @throws IllegalArgumentException if names are too long or frame exceeds {@link #MAX_FRAME}
+   */
+  static byte[] encode(
+      String serviceName,
+      String instanceName,
+      int sequence,
+      Duration ttl,
+      @Nullable String metadata) {
+    var service = bytes(serviceName, 0xFF, "service name");
+    var instance = bytes(instanceName, 0xFF, "instance name");
+    var meta = metadata == null ? null : bytes(metadata, 0xFFFF, "metadata");
+
+    int length =
+        SERVICE_OFFSET
+            + 1
+            + service.length
+            + 1
+            + instance.length
+            + (meta == null ? 0 : 2 + meta.length)
+            + CRC_LENGTH;
+
+    if (length > MAX_FRAME) {
+      throw new IllegalArgumentException("Frame is too long: " + length);
+    }
+
+    var buffer =
+        ByteBuffer.allocate(length)
+            .putShort(MAGIC)
+            .put(VERSION)
+            .put(meta == null ? 0 : FLAG_METADATA)
+            .putInt(sequence)
+            .putInt((int) Math.min(ttl.toMillis(), 0xFFFFFFFFL))
+            .put((byte) service.length)
+            .put(service)
+            .put((byte) instance.length)
+            .put(instance);
+
+    if (meta != null) {
+      buffer.putShort((short) meta.length).put(meta);
+    }
+
+    var frame = buffer.array();
+    sequence(frame, sequence);
+    return frame;
+  }
+
+  /**
+   * Update sequence number and CRC of encoded frame in place
+   *
+   * @param frame encoded frame
+   * @param sequence new sequence number
+   */
+  static void sequence(byte[] frame, int sequence) {
+    var buffer = ByteBuffer.wrap(frame);
+    buffer.putInt(SEQUENCE_OFFSET, sequence);
+
+    var checksum = crc.get();
+    checksum.reset();
+    checksum.update(frame, 0, frame.length - CRC_LENGTH);
+    buffer.putInt(frame.length - CRC_LENGTH, (int) checksum.getValue());
+  }
+
+  /**
+   * Check if message starts as v2 frame, not as v1 text
+   *
+   * @param buffer message between position and limit
+   * @return true if message should be parsed as frame
+   */
+  static boolean framed(ByteBuffer buffer) {
+    return buffer.hasRemaining() && buffer.get(buffer.position()) == (byte) (MAGIC >> 8);
+  }
+
+  /**
+   * Check if message is v2 frame with non-empty names, fields filling it exactly and valid CRC.
+   * Buffer position and limit are not changed.
+   *
+   * @param buffer message between position and limit
+   * @return true if frame is valid
+   */
+  static boolean valid(ByteBuffer buffer) {
+    int position = buffer.position();
+    int limit = buffer.limit();
+    int end = limit - CRC_LENGTH;
+
+    if (limit - position < SERVICE_OFFSET + 2 + CRC_LENGTH
+        || buffer.getShort(position) != MAGIC
+        || buffer.get(position + VERSION_OFFSET) != VERSION
+        || buffer.get(position + SERVICE_OFFSET) == 0) {
+      return false;
+    }
+
+    int instance = instanceOffset(buffer);
+    if (instance >= end || buffer.get(instance) == 0) {
+      return false;
+    }
+
+    int next = instance + 1 + (buffer.get(instance) & 0xFF);
+    boolean metadata = (buffer.get(position + FLAGS_OFFSET) & FLAG_METADATA) != 0;
+    if (metadata
+        ? next + 2 > end || next + 2 + (buffer.getShort(next) & 0xFFFF) != end
+        : next != end) {
+      return false;
+    }
+
+    var checksum = crc.get();
+    checksum.reset();
+    checksum.update(buffer.limit(limit - CRC_LENGTH));
+    buffer.limit(limit).position(position);
+
+    return (int) checksum.getValue() == buffer.getInt(limit - CRC_LENGTH);
+  }
+
+  /**
+   * Absolute index of instance name length in frame
+   *
+   * @param buffer frame between position and limit
+   * @return index
+   */
+  static int instanceOffset(ByteBuffer buffer) {
+    int service = buffer.position() + SERVICE_OFFSET;
+    return service + 1 + (buffer.get(service) & 0xFF);
+  }
+
+  /**
+   * TTL hint of message accepted by {@link PacketParser}. Buffer position and limit are not
+   * changed.
+   *
+   * @param buffer message between position and limit
+   * @return TTL hint in milliseconds, 0 for v1 message
+   */
+  static long ttl(ByteBuffer buffer) {
+    int position = buffer.position();
+    return buffer.remaining() > TTL_OFFSET + 4 && buffer.getShort(position) == MAGIC
+        ? buffer.getInt(position + TTL_OFFSET) & 0xFFFFFFFFL
+        : 0;
+  }
+
+  private static byte[] bytes(String value, int max, String what) {
+    var bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > max) {
+      throw new IllegalArgumentException("Too long " + what + ": " + value);
+    }
+    return bytes;
+  }
+}
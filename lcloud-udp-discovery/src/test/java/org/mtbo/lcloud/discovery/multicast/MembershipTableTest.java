@@ -0,0 +1,109 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mtbo.lcloud.discovery.multicast.MulticastDiscovery.MembershipEvent;
+import org.mtbo.lcloud.discovery.multicast.MulticastDiscovery.MembershipEvent.Kind;
+
+public class MembershipTableTest {
+
+  final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  final List<MembershipEvent> events = new ArrayList<>();
+
+  final MembershipTable table =
+      new MembershipTable(Duration.ofSeconds(3), Duration.ofMillis(100), clock::get, events::add);
+
+  void advance(Duration duration) {
+    clock.addAndGet(duration.toNanos());
+    table.tick();
+  }
+
+  @Test
+  public void testJoinAndLeave() {
+    table.announce("first", 0);
+    table.announce("first", 0);
+    table.announce("second", 0);
+
+    assertEquals(
+        List.of(
+            new MembershipEvent(Kind.JOIN, "first", Set.of("first")),
+            new MembershipEvent(Kind.JOIN, "second", Set.of("first", "second"))),
+        events);
+
+    advance(Duration.ofMillis(2900));
+    assertEquals(2, events.size());
+
+    advance(Duration.ofMillis(200));
+    assertEquals(Set.of(), table.members());
+    assertEquals(
+        List.of(
+            new MembershipEvent(Kind.LEAVE, "first", Set.of("second")),
+            new MembershipEvent(Kind.LEAVE, "second", Set.of())),
+        events.subList(2, 4));
+  }
+
+  @Test
+  public void testRefresh() {
+    table.announce("first", 0);
+
+    // announced every second, much longer than wheel revolution
+    for (int i = 0; i < 100; i++) {
+      advance(Duration.ofSeconds(1));
+      table.announce("first", 0);
+    }
+
+    assertEquals(1, events.size());
+    assertEquals(Set.of("first"), table.members());
+
+    advance(Duration.ofMillis(3100));
+    assertEquals(new MembershipEvent(Kind.LEAVE, "first", Set.of()), events.get(1));
+
+    table.announce("first", 0);
+    assertEquals(new MembershipEvent(Kind.JOIN, "first", Set.of("first")), events.get(2));
+  }
+
+  @Test
+  public void testEventsOutsideMonitor() {
+    var locked = new ArrayList<Boolean>();
+    var holder = new AtomicReference<MembershipTable>();
+    holder.set(
+        new MembershipTable(
+            Duration.ofSeconds(3),
+            Duration.ofMillis(100),
+            clock::get,
+            event -> locked.add(Thread.holdsLock(holder.get()))));
+    var table = holder.get();
+
+    table.announce("first", 0);
+    clock.addAndGet(Duration.ofSeconds(4).toNanos());
+    table.tick();
+
+    assertEquals(List.of(false, false), locked);
+  }
+
+  @Test
+  public void testTtlHint() {
+    table.announce("first", 500);
+    table.announce("second", 60_000);
+
+    advance(Duration.ofMillis(700));
+    assertEquals(Set.of("second"), table.members());
+
+    advance(Duration.ofSeconds(30));
+    assertEquals(Set.of("second"), table.members());
+
+    advance(Duration.ofSeconds(31));
+    assertEquals(Set.of(), table.members());
+    assertEquals(4, events.size());
+  }
+}
@@ -0,0 +1,143 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class PacketParserTest {
+
+  static ByteBuffer message(String text) {
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+  }
+
+  @Test
+  public void testParse() {
+    var parser = new PacketParser("service");
+
+    assertEquals("first", parser.parse(message("LC_DISCOVERY service FROM first")));
+    assertEquals("first", parser.parse(message("LC_DISCOVERY service FROM first  ")));
+    assertEquals(
+        "первый",
+        parser.parse(
+            ByteBuffer.wrap("LC_DISCOVERY service FROM первый".getBytes(StandardCharsets.UTF_8))));
+
+    assertNull(parser.parse(message("LC_DISCOVERY service FROM ")));
+    assertNull(parser.parse(message("LC_DISCOVERY service FROM first second")));
+    assertNull(parser.parse(message("LC_DISCOVERY other FROM first")));
+    assertNull(parser.parse(message("LC_DISCOVERY service  FROM first")));
+    assertNull(parser.parse(message("LC_DISCOVERY service")));
+    assertNull(parser.parse(message("")));
+  }
+
+  @Test
+  public void testParseKeepsBuffer() {
+    var parser = new PacketParser("service");
+    var buffer = ByteBuffer.allocate(64).put("xxLC_DISCOVERY service FROM first".getBytes());
+    buffer.flip().position(2);
+
+    assertEquals("first", parser.parse(buffer));
+    assertEquals(2, buffer.position());
+    assertEquals(33, buffer.limit());
+  }
+
+  @Test
+  public void testFrame() {
+    var parser = new PacketParser("service");
+    var ttl = Duration.ofSeconds(3);
+
+    var frame = WireProtocol.encode("service", "first", 0, ttl, null);
+    assertEquals("first", parser.parse(ByteBuffer.wrap(frame)));
+
+    var text = parser.parse(message("LC_DISCOVERY service FROM first"));
+    assertSame(text, parser.parse(ByteBuffer.allocateDirect(frame.length).put(frame).flip()));
+
+    var withMetadata = WireProtocol.encode("service", "first", 7, ttl, "host=10.0.0.1;port=80");
+    assertEquals("first", parser.parse(ByteBuffer.wrap(withMetadata)));
+    assertEquals(7, ByteBuffer.wrap(withMetadata).getInt(WireProtocol.SEQUENCE_OFFSET));
+    assertEquals(3000, ByteBuffer.wrap(withMetadata).getInt(WireProtocol.TTL_OFFSET));
+
+    WireProtocol.sequence(withMetadata, 8);
+    assertEquals("first", parser.parse(ByteBuffer.wrap(withMetadata)));
+
+    withMetadata[WireProtocol.SEQUENCE_OFFSET] ^= 1;
+    assertNull(parser.parse(ByteBuffer.wrap(withMetadata)));
+
+    assertNull(parser.parse(ByteBuffer.wrap(WireProtocol.encode("other", "first", 0, ttl, null))));
+    assertNull(parser.parse(ByteBuffer.wrap(WireProtocol.encode("service", "", 0, ttl, null))));
+    assertNull(parser.parse(ByteBuffer.wrap(frame, 0, frame.length - 1)));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WireProtocol.encode("service", "x".repeat(256), 0, ttl, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WireProtocol.encode("service", "first", 0, ttl, "x".repeat(WireProtocol.MAX_FRAME)));
+  }
+
+  @Test
+  public void testWireNames() {
+    var parser = new PacketParser("my service");
+    var config =
+        new MulticastPublisher.Config(
+            "my service", "first instance", "230.0.0.0", 4446, Duration.ofSeconds(1));
+
+    var v1 = ByteBuffer.wrap(MulticastPublisher.payload(config));
+    var v2 =
+        ByteBuffer.wrap(MulticastPublisher.payload(config.withWire(MulticastPublisher.Wire.V2)));
+
+    assertEquals(
+        "LC_DISCOVERY my_service FROM first_instance",
+        StandardCharsets.UTF_8.decode(v1.duplicate()).toString());
+    assertEquals("first_instance", parser.parse(v1));
+    assertEquals("first_instance", parser.parse(v2));
+  }
+
+  @Test
+  public void testInterning() {
+    var parser = new PacketParser("service", 2);
+
+    var first = parser.parse(message("LC_DISCOVERY service FROM first"));
+    assertSame(first, parser.parse(message("LC_DISCOVERY service FROM first")));
+    assertEquals(1, parser.size());
+
+    var second = parser.parse(message("LC_DISCOVERY service FROM second"));
+    assertSame(first, parser.parse(message("LC_DISCOVERY service FROM first")));
+    assertSame(second, parser.parse(message("LC_DISCOVERY service FROM second")));
+
+    var third = parser.parse(message("LC_DISCOVERY service FROM third"));
+    assertEquals(2, parser.size());
+
+    assertEquals("third", third);
+    assertSame(third, parser.parse(message("LC_DISCOVERY service FROM third")));
+    assertSame(second, parser.parse(message("LC_DISCOVERY service FROM second")));
+
+    var evicted = parser.parse(message("LC_DISCOVERY service FROM first"));
+    assertEquals(first, evicted);
+    assertNotSame(first, evicted);
+  }
+
+  @Test
+  public void testInterningAfterChurn() {
+    var parser = new PacketParser("service", 16);
+    var ttl = Duration.ofSeconds(3);
+
+    for (int i = 0; i < 1000; i++) {
+      parser.parse(message("LC_DISCOVERY service FROM gone-" + i));
+      parser.parse(ByteBuffer.wrap(WireProtocol.encode("service", "left-" + i, 0, ttl, null)));
+    }
+    assertEquals(16, parser.size());
+
+    var text = parser.parse(message("LC_DISCOVERY service FROM fresh"));
+    assertSame(text, parser.parse(message("LC_DISCOVERY service FROM fresh")));
+
+    var frame = WireProtocol.encode("service", "joined", 0, ttl, null);
+    var name = parser.parse(ByteBuffer.wrap(frame));
+    assertSame(name, parser.parse(ByteBuffer.wrap(frame)));
+  }
+}
@@ -0,0 +1,78 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mtbo.lcloud.discovery.multicast.MulticastDiscovery.MembershipEvent;
+import reactor.test.StepVerifier;
+
+/** Publisher and selector receiver over multicast loopback of this host */
+public class SelectorReceiverTest {
+
+  static final String GROUP = "230.0.0.0";
+
+  static final int PORT = 4451;
+
+  static final Duration interval = Duration.ofMillis(100);
+
+  @BeforeAll
+  static void requireInterface() throws SocketException {
+    assumeTrue(
+        NetworkInterface.networkInterfaces().anyMatch(MulticastDiscovery::usable),
+        "No multicast interface");
+  }
+
+  static Thread publish(String instanceName) {
+    return Thread.ofPlatform()
+        .daemon()
+        .start(
+            new MulticastPublisher(
+                new MulticastPublisher.Config("service", instanceName, GROUP, PORT, interval)
+                    .withWire(MulticastPublisher.Wire.V2)));
+  }
+
+  static MulticastDiscovery discovery() throws SocketException {
+    return new MulticastDiscovery(
+        new MulticastDiscovery.Config(
+            "service", GROUP, PORT, interval, MulticastDiscovery.Receiver.SELECTOR));
+  }
+
+  @Test
+  public void testReceive() throws Exception {
+    var publisher = publish("first");
+    try {
+      discovery()
+          .receive()
+          .filter(names -> !names.isEmpty())
+          .take(1)
+          .as(StepVerifier::create)
+          .expectNext(new HashSet<>(Set.of("first")))
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+    } finally {
+      publisher.interrupt();
+    }
+  }
+
+  @Test
+  public void testMembership() throws Exception {
+    var publisher = publish("second");
+
+    discovery()
+        .membership()
+        .as(StepVerifier::create)
+        .expectNext(new MembershipEvent(MembershipEvent.Kind.JOIN, "second", Set.of("second")))
+        .then(publisher::interrupt)
+        .expectNext(new MembershipEvent(MembershipEvent.Kind.LEAVE, "second", Set.of()))
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+}
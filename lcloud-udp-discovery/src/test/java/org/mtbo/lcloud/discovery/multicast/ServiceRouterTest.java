@@ -0,0 +1,83 @@
+/* (C) 2025 Vladimir E. (PROGrand) Koltunov (mtbo.org) */
+
+package org.mtbo.lcloud.discovery.multicast;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ServiceRouterTest {
+
+  final ServiceRouter router = new ServiceRouter();
+
+  static ByteBuffer message(String text) {
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+  }
+
+  List<String> register(String serviceName) {
+    var received = new ArrayList<String>();
+    router.register(
+        new ServiceRouter.Route(serviceName, (name, ttl) -> received.add(name + "/" + ttl)));
+    return received;
+  }
+
+  @Test
+  public void testRoute() {
+    var first = register("first");
+    var second = register("second");
+
+    assertTrue(router.route(message("LC_DISCOVERY first FROM a")));
+    assertTrue(router.route(message("LC_DISCOVERY second FROM b  ")));
+    assertTrue(
+        router.route(
+            ByteBuffer.wrap(
+                WireProtocol.encode("second", "c", 0, Duration.ofSeconds(2), "port=80"))));
+
+    assertEquals(List.of("a/0"), first);
+    assertEquals(List.of("b/0", "c/2000"), second);
+  }
+
+  @Test
+  public void testSkip() {
+    var first = register("first");
+
+    assertFalse(router.route(message("LC_DISCOVERY third FROM a")));
+    assertFalse(router.route(message("LC_DISCOVERY first FROM ")));
+    assertFalse(router.route(message("LC_DISCOVERY first FROM a b")));
+    assertFalse(router.route(message("LC_DISCOVERY first TO a")));
+    assertFalse(router.route(message("LC_DISCOVERY  FROM a")));
+    assertFalse(router.route(message("")));
+
+    var frame = WireProtocol.encode("first", "a", 0, Duration.ofSeconds(1), null);
+    frame[frame.length - 1] ^= 1;
+    assertFalse(router.route(ByteBuffer.wrap(frame)));
+
+    assertEquals(List.of(), first);
+  }
+
+  @Test
+  public void testRegistration() {
+    var first = register("first");
+    var again = new ArrayList<String>();
+    var route = new ServiceRouter.Route("first", (name, ttl) -> again.add(name));
+    router.register(route);
+
+    // grow table past initial size
+    for (int i = 0; i < 100; i++) {
+      register("service-" + i);
+    }
+
+    router.route(message("LC_DISCOVERY first FROM a"));
+    router.unregister(route);
+    router.route(message("LC_DISCOVERY first FROM b"));
+
+    assertEquals(List.of("a/0", "b/0"), first);
+    assertEquals(List.of("a"), again);
+  }
+}